@@ -0,0 +1,3 @@
+package ast;
+
+abstract class ASTNode {}
@@ -0,0 +1,158 @@
+package ast;
+
+import java.util.*;
+
+// The AST as parallel arrays instead of node objects: each node is an index with a kind, its first child, its
+// next sibling and the index of its first token in the TokenBuffer. Every other token of a node sits at a fixed
+// offset from that one, since the grammar has no optional parts inside a node:
+//   STATEMENT  imp, video (+1), = (+2), file path (+3)
+//   PIPELINE   the first ->
+//   COMMAND    the command name
+//   PARAMETER  --name, value (+1)
+// Nodes are stored in preorder, so walking the tree reads the arrays front to back.
+public class AstArena {
+    public enum Kind {
+        PROGRAM, STATEMENT, PIPELINE, COMMAND, PARAMETER
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final TokenBuffer tokens;
+    private byte[] kinds;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] tokenIndexes;
+    private int size;
+
+    AstArena(TokenBuffer tokens) {
+        this.tokens = tokens;
+        // a parameter takes two tokens and every other node at least one, so this rarely needs to grow
+        int capacity = tokens.size() / 2 + 16;
+        kinds = new byte[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        tokenIndexes = new int[capacity];
+    }
+
+    public static AstArena parse(TokenBuffer tokens) {
+        AstArena arena = new AstArena(tokens);
+        new Parser(tokens).parseProgram(arena);
+        return arena;
+    }
+
+    // a new node with no children, after previousSibling among parent's children (or first when it is -1)
+    int add(Kind kind, int tokenIndex, int parent, int previousSibling) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            firstChildren = Arrays.copyOf(firstChildren, size * 2);
+            nextSiblings = Arrays.copyOf(nextSiblings, size * 2);
+            tokenIndexes = Arrays.copyOf(tokenIndexes, size * 2);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        firstChildren[size] = -1;
+        nextSiblings[size] = -1;
+        tokenIndexes[size] = tokenIndex;
+        if (previousSibling >= 0) {
+            nextSiblings[previousSibling] = size;
+        } else if (parent >= 0) {
+            firstChildren[parent] = size;
+        }
+        return size++;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    public Kind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    // -1 when there is none
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int tokenIndex(int node) {
+        return tokenIndexes[node];
+    }
+
+    // the text of the node's token at offset from its first one, as in the table above
+    public CharSequence text(int node, int offset) {
+        return tokens.text(tokenIndexes[node] + offset);
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) count++;
+        return count;
+    }
+
+    // depth first: the node's visit method, its children, then leave()
+    public void accept(AstVisitor visitor) {
+        if (size > 0) accept(visitor, root());
+    }
+
+    public void accept(AstVisitor visitor, int node) {
+        switch (kind(node)) {
+            case PROGRAM:
+                visitor.visitProgram(this, node);
+                break;
+            case STATEMENT:
+                visitor.visitStatement(this, node);
+                break;
+            case PIPELINE:
+                visitor.visitPipeline(this, node);
+                break;
+            case COMMAND:
+                visitor.visitCommand(this, node);
+                break;
+            case PARAMETER:
+                visitor.visitParameter(this, node);
+                break;
+        }
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) accept(visitor, child);
+        visitor.leave(this, node);
+    }
+
+    // the same tree as node objects, for code written against ProgramNode
+    public ProgramNode toProgramNode() {
+        List<StatementNode> statements = new ArrayList<>(childCount(root()));
+        for (int statement = firstChild(root()); statement >= 0; statement = nextSibling(statement)) {
+            statements.add(statementNode(statement));
+        }
+        return new ProgramNode(statements);
+    }
+
+    public StatementNode statementNode(int statement) {
+        int first = tokenIndexes[statement];
+        PipelineNode pipeline = null;
+        int pipelineNode = firstChild(statement);
+        if (pipelineNode >= 0) {
+            List<CommandNode> commands = new ArrayList<>(childCount(pipelineNode));
+            for (int command = firstChild(pipelineNode); command >= 0; command = nextSibling(command)) {
+                List<ParameterNode> parameters = new ArrayList<>(childCount(command));
+                for (int parameter = firstChild(command); parameter >= 0; parameter = nextSibling(parameter)) {
+                    int index = tokenIndexes[parameter];
+                    parameters.add(new ParameterNode(tokens.token(index), tokens.token(index + 1)));
+                }
+                commands.add(new CommandNode(tokens.token(tokenIndexes[command]), parameters));
+            }
+            pipeline = new PipelineNode(commands);
+        }
+        return new StatementNode(tokens.token(first), tokens.token(first + 1), tokens.token(first + 2),
+                tokens.token(first + 3), pipeline);
+    }
+}
@@ -0,0 +1,23 @@
+package ast;
+
+// Called by AstArena.accept() for each node in depth-first order; leave() follows the node's children.
+// Every method does nothing by default, so a visitor overrides only the kinds it cares about.
+public interface AstVisitor {
+    default void visitProgram(AstArena ast, int node) {
+    }
+
+    default void visitStatement(AstArena ast, int node) {
+    }
+
+    default void visitPipeline(AstArena ast, int node) {
+    }
+
+    default void visitCommand(AstArena ast, int node) {
+    }
+
+    default void visitParameter(AstArena ast, int node) {
+    }
+
+    default void leave(AstArena ast, int node) {
+    }
+}
@@ -0,0 +1,17 @@
+package ast;
+
+import java.util.List;
+
+class CommandNode extends ASTNode {
+    public final Token command;
+    public final List<ParameterNode> parameters;
+
+    public CommandNode(Token command, List<ParameterNode> parameters) {
+        this.command = command;
+        this.parameters = parameters;
+    }
+
+    public String toTreeString(String indent, boolean isLast) {
+        return TreePrinter.render(printer -> printer.printTree(this, indent, isLast));
+    }
+}
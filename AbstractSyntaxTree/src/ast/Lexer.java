@@ -1,40 +1,107 @@
 package ast;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Lexer {
+    private static final TokenType[] TOKEN_TYPES;
+    // capturing group of each type's alternative in TOKEN_PATTERN
+    private static final int[] TOKEN_GROUPS;
+    private static final Pattern TOKEN_PATTERN;
+
+    // The alternatives in TokenType order: at any position the first one that matches wins, as when every
+    // pattern was tried on its own
+    static {
+        TokenType[] values = TokenType.values();
+        TOKEN_TYPES = new TokenType[values.length - 1];
+        TOKEN_GROUPS = new int[TOKEN_TYPES.length];
+        StringJoiner alternatives = new StringJoiner("|");
+        int group = 1;
+        int count = 0;
+        for (TokenType type : values) {
+            if (type == TokenType.EOF) continue;
+            alternatives.add("(" + type.pattern + ")");
+            TOKEN_TYPES[count] = type;
+            TOKEN_GROUPS[count++] = group;
+            group += 1 + Pattern.compile(type.pattern).matcher("").groupCount();
+        }
+        TOKEN_PATTERN = Pattern.compile(alternatives.toString());
+    }
+
     private final String input;
-    private final List<Token> tokens = new ArrayList<>();
 
     public Lexer(String input) {
         this.input = input;
     }
 
     public List<Token> tokenize() {
-        String remaining = input;
-        while (!remaining.isEmpty()) {
-            boolean matched = false;
-            remaining = remaining.trim();
-            for (TokenType type : TokenType.values()) {
-                if (type == TokenType.EOF) continue;
-                Pattern pattern = Pattern.compile("^(" + type.pattern + ")");
-                Matcher matcher = pattern.matcher(remaining);
-                if (matcher.find()) {
-                    String text = matcher.group(1);
-                    tokens.add(new Token(type, text));
-                    remaining = remaining.substring(text.length());
-                    matched = true;
-                    break;
-                }
+        return tokenizeToBuffer().toTokens();
+    }
+
+    // Tokenizes into offsets of the input, matching each token in place. The region ends where trailing
+    // whitespace begins and its bounds stay opaque, so $ and a leading \b see what they saw when every
+    // token was matched against the trimmed rest of the input.
+    public TokenBuffer tokenizeToBuffer() {
+        TokenBuffer tokens = new TokenBuffer(input);
+        int end = trimmedEnd();
+        Matcher matcher = TOKEN_PATTERN.matcher(input);
+        for (int position = skipWhitespace(0, end); position < end; position = skipWhitespace(matcher.end(), end)) {
+            tokens.add(match(matcher, position, end), position, matcher.end() - position);
+        }
+        tokens.add(TokenType.EOF, input.length(), 0);
+        return tokens;
+    }
+
+    // the tokens one at a time, each matched when it is asked for, ending with EOF
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private final Matcher matcher = TOKEN_PATTERN.matcher(input);
+            private final int end = trimmedEnd();
+            private int position = skipWhitespace(0, end);
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                return !done;
             }
-            if (!matched) {
-                throw new RuntimeException("Unexpected token: " + remaining);
+
+            @Override
+            public Token next() {
+                if (done) throw new NoSuchElementException();
+                if (position == end) {
+                    done = true;
+                    return new Token(TokenType.EOF, "");
+                }
+                TokenType type = match(matcher, position, end);
+                Token token = new Token(type, input.substring(position, matcher.end()));
+                position = skipWhitespace(matcher.end(), end);
+                return token;
             }
+        };
+    }
+
+    private TokenType match(Matcher matcher, int position, int end) {
+        matcher.region(position, end);
+        if (!matcher.lookingAt()) {
+            throw new RuntimeException("Unexpected token: " + input.substring(position, end));
         }
-        tokens.add(new Token(TokenType.EOF, ""));
-        return tokens;
+        int type = 0;
+        while (matcher.start(TOKEN_GROUPS[type]) < 0) type++;
+        return TOKEN_TYPES[type];
+    }
+
+    private int trimmedEnd() {
+        int end = input.length();
+        while (end > 0 && input.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    private int skipWhitespace(int position, int end) {
+        while (position < end && input.charAt(position) <= ' ') position++;
+        return position;
     }
 }
@@ -0,0 +1,236 @@
+package ast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+public class LexerBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final String[] COMMANDS = {"cut", "fade", "overlay", "trim", "speed", "reverse", "resize", "rotate", "flipX", "flipY"};
+    private static final String[] PARAMETERS = {"x", "y", "w", "h", "deg", "lvl", "format"};
+    private static final String[] EXTENSIONS = {"mp4", "avi", "mov", "flv", "mkv"};
+
+    public static void main(String[] args) {
+        String sample = script(new Random(0), 1);
+        long start = System.nanoTime();
+        new GeneratedLexer(sample).tokenize();
+        long generatedFirst = System.nanoTime() - start;
+        start = System.nanoTime();
+        new Lexer(sample).tokenize();
+        long lexerFirst = System.nanoTime() - start;
+        System.out.printf("First call on one statement: Lexer %.3f ms, GeneratedLexer %.3f ms%n", lexerFirst / 1e6, generatedFirst / 1e6);
+
+        // Lexer used to copy the rest of the input after every token; now both should grow linearly
+        for (int statements : new int[]{1_000, 10_000, 100_000}) {
+            String script = script(new Random(1), statements);
+            double megabytes = script.length() / (1024.0 * 1024.0);
+            System.out.printf("Tokenizing %d statements (%.2f MiB)%n", statements, megabytes);
+            long lexer = time(() -> new Lexer(script).tokenizeToBuffer());
+            long generated = time(() -> new GeneratedLexer(script).tokenizeToBuffer());
+            report("  Lexer", lexer, megabytes);
+            report("  GeneratedLexer", generated, megabytes);
+            System.out.printf("  speedup: %.1fx%n", (double) lexer / generated);
+        }
+
+        benchmarkStreamingParser(300_000);
+        benchmarkArena(300_000);
+        benchmarkPrinting(100_000);
+    }
+
+    // rendering a whole tree to a String the way toString() used to, against streaming it to a file
+    private static void benchmarkPrinting(int statements) {
+        ProgramNode program = new Parser(new Lexer(script(new Random(4), statements)).tokenizeToBuffer()).parseProgram();
+        String tree = legacyTreeString(program);
+        if (!tree.equals(program.toString())) throw new IllegalStateException("TreePrinter output differs from the old layout");
+        double megabytes = tree.length() / (1024.0 * 1024.0);
+        System.out.printf("Printing %d statements (%.1f MiB of tree text)%n", statements, megabytes);
+        report("  nested StringBuilders", time(() -> legacyTreeString(program)), megabytes);
+        report("  TreePrinter to a StringBuilder", time(program::toString), megabytes);
+        report("  TreePrinter to a file", time(() -> printToFile(program, TreePrinter.Format.TREE)), megabytes);
+        report("  JSON lines to a file", time(() -> printToFile(program, TreePrinter.Format.JSON_LINES)), megabytes);
+    }
+
+    private static long printToFile(ProgramNode program, TreePrinter.Format format) {
+        try {
+            Path file = Files.createTempFile("ast", ".txt");
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                new TreePrinter(writer, format).print(program);
+            }
+            long size = Files.size(file);
+            Files.delete(file);
+            return size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ProgramNode.toString() before TreePrinter: a new StringBuilder per node and the indent rebuilt per child
+    static String legacyTreeString(ProgramNode program) {
+        StringBuilder sb = new StringBuilder("Program\n");
+        for (StatementNode statement : program.statements) {
+            sb.append(legacyTreeString(statement, "    "));
+        }
+        return sb.toString();
+    }
+
+    private static String legacyTreeString(StatementNode statement, String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append("Statement\n");
+        sb.append(indent).append("├── StartCommand: ").append(statement.startCommand.text).append("\n");
+        sb.append(indent).append("├── VideoIdentifier: ").append(statement.videoIdentifier.text).append("\n");
+        sb.append(indent).append("├── Equals: ").append(statement.equals.text).append("\n");
+        sb.append(indent).append("├── FilePath: ").append(statement.filePath.text).append("\n");
+        if (statement.pipeline != null) {
+            sb.append(indent).append("└── Pipeline\n");
+            for (int i = 0; i < statement.pipeline.commands.size(); i++) {
+                CommandNode command = statement.pipeline.commands.get(i);
+                boolean isLast = (i == statement.pipeline.commands.size() - 1);
+                sb.append(legacyTreeString(command, indent + (isLast ? "    " : "│   "), isLast));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String legacyTreeString(CommandNode command, String indent, boolean isLast) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append(isLast ? "└── " : "├── ").append("Command: ").append(command.command.text).append("\n");
+        for (int i = 0; i < command.parameters.size(); i++) {
+            ParameterNode parameter = command.parameters.get(i);
+            boolean isLastParameter = (i == command.parameters.size() - 1);
+            sb.append(indent).append(isLast ? "    " : "│   ");
+            sb.append(isLastParameter ? "└── " : "├── ");
+            sb.append("Parameter: ").append(parameter.parameter.text).append(" ").append(parameter.value.text).append("\n");
+        }
+        return sb.toString();
+    }
+
+    // node objects against the arena: heap held by the tree and a full walk counting parameters
+    private static void benchmarkArena(int statements) {
+        TokenBuffer tokens = new Lexer(script(new Random(3), statements)).tokenizeToBuffer();
+        System.out.printf("AST for %d statements%n", statements);
+        System.out.printf("  heap held: ProgramNode %d KiB, AstArena %d KiB%n", heapHeldByProgram(tokens) >> 10, heapHeldByArena(tokens) >> 10);
+
+        ProgramNode program = new Parser(tokens).parseProgram();
+        AstArena arena = AstArena.parse(tokens);
+        long objects = time(() -> countParameters(program));
+        long flat = time(() -> countParameters(arena));
+        System.out.printf("  walk: ProgramNode %.3f ms, AstArena %.3f ms (%d parameters)%n", objects / 1e6, flat / 1e6, countParameters(arena));
+    }
+
+    private static int countParameters(ProgramNode program) {
+        int parameters = 0;
+        for (StatementNode statement : program.statements) {
+            if (statement.pipeline == null) continue;
+            for (CommandNode command : statement.pipeline.commands) parameters += command.parameters.size();
+        }
+        return parameters;
+    }
+
+    private static int countParameters(AstArena arena) {
+        int[] parameters = new int[1];
+        arena.accept(new AstVisitor() {
+            @Override
+            public void visitParameter(AstArena ast, int node) {
+                parameters[0]++;
+            }
+        });
+        return parameters[0];
+    }
+
+    // both exclude the TokenBuffer, which is alive throughout
+    private static long heapHeldByProgram(TokenBuffer tokens) {
+        long baseline = usedHeap();
+        ProgramNode program = new Parser(tokens).parseProgram();
+        long held = usedHeap() - baseline;
+        return program.statements.isEmpty() ? 0 : held;
+    }
+
+    private static long heapHeldByArena(TokenBuffer tokens) {
+        long baseline = usedHeap();
+        AstArena arena = AstArena.parse(tokens);
+        long held = usedHeap() - baseline;
+        return arena.size() == 0 ? 0 : held;
+    }
+
+    // a whole ProgramNode against parsing statement by statement from a token iterator
+    private static void benchmarkStreamingParser(int statements) {
+        String script = script(new Random(2), statements);
+        double megabytes = script.length() / (1024.0 * 1024.0);
+        System.out.printf("Parsing %d statements (%.1f MiB)%n", statements, megabytes);
+        report("  parseProgram()", time(() -> new Parser(new Lexer(script).tokenizeToBuffer()).parseProgram()), megabytes);
+        report("  statements()", time(() -> countStatements(script)), megabytes);
+        System.out.printf("  heap held: parseProgram() %d KiB, statements() at most %d KiB%n",
+                heapHeldByProgram(script) >> 10, heapWhileStreaming(script) >> 10);
+    }
+
+    private static int countStatements(String script) {
+        int statements = 0;
+        for (Iterator<StatementNode> it = new Parser(new Lexer(script).iterator()).statements(); it.hasNext(); it.next()) statements++;
+        return statements;
+    }
+
+    private static long heapHeldByProgram(String script) {
+        long baseline = usedHeap();
+        ProgramNode program = new Parser(new Lexer(script).tokenizeToBuffer()).parseProgram();
+        long held = usedHeap() - baseline;
+        return program.statements.isEmpty() ? 0 : held;
+    }
+
+    // sampled every 50,000 statements
+    private static long heapWhileStreaming(String script) {
+        long baseline = usedHeap();
+        long largest = 0;
+        int statements = 0;
+        for (Iterator<StatementNode> it = new Parser(new Lexer(script).iterator()).statements(); it.hasNext(); it.next()) {
+            if (++statements % 50_000 == 0) largest = Math.max(largest, usedHeap() - baseline);
+        }
+        return largest;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // one statement per line: imp video = "clip.ext" -> command --param n ... -> ... ;
+    static String script(Random random, int statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int s = 0; s < statements; s++) {
+            sb.append("imp video = \"clips/take").append(random.nextInt(1000)).append('.')
+                    .append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]).append('"');
+            int steps = 1 + random.nextInt(4);
+            for (int i = 0; i < steps; i++) {
+                sb.append(" -> ").append(COMMANDS[random.nextInt(COMMANDS.length)]);
+                int parameters = random.nextInt(3);
+                for (int p = 0; p < parameters; p++) {
+                    sb.append(" --").append(PARAMETERS[random.nextInt(PARAMETERS.length)]).append(' ').append(random.nextInt(2000) - 100);
+                }
+            }
+            if (random.nextInt(4) == 0) sb.append(" -> overlay --video \"exports/final").append(random.nextInt(10)).append(".mp4\"");
+            sb.append(";\n");
+        }
+        return sb.toString();
+    }
+
+    static long time(Supplier<?> task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) task.get();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static void report(String label, long nanos, double megabytes) {
+        System.out.printf("%-40s %10.3f ms %8.1f MiB/s%n", label, nanos / 1e6, megabytes / (nanos / 1e9));
+    }
+}
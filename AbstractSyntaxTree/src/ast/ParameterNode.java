@@ -0,0 +1,11 @@
+package ast;
+
+class ParameterNode extends ASTNode {
+    public final Token parameter;
+    public final Token value;
+
+    public ParameterNode(Token parameter, Token value) {
+        this.parameter = parameter;
+        this.value = value;
+    }
+}
@@ -0,0 +1,161 @@
+package ast;
+
+import java.util.*;
+
+class Parser {
+    private final TokenCursor tokens;
+
+    public Parser(List<Token> tokens) {
+        this(TokenCursor.of(tokens));
+    }
+
+    // parses straight from the offsets in the buffer, creating Token objects only for what the AST keeps
+    public Parser(TokenBuffer tokens) {
+        this(tokens.cursor());
+    }
+
+    // reads tokens only as far as the statement being parsed; see statements()
+    public Parser(Iterator<Token> tokens) {
+        this(TokenCursor.of(tokens));
+    }
+
+    Parser(TokenCursor tokens) {
+        this.tokens = tokens;
+    }
+
+    private TokenType peek() {
+        return tokens.peekType();
+    }
+
+    private Token consume(TokenType expected) {
+        expectType(expected);
+        return tokens.take();
+    }
+
+    private void skip(TokenType expected) {
+        expectType(expected);
+        tokens.skip();
+    }
+
+    private void expectType(TokenType expected) {
+        if (peek() != expected) {
+            throw new RuntimeException("Expected " + expected + " but found " + tokens.describe());
+        }
+    }
+
+    private boolean match(TokenType expected) {
+        if (peek() == expected) {
+            tokens.skip();
+            return true;
+        }
+        return false;
+    }
+
+    public ProgramNode parseProgram() {
+        List<StatementNode> statements = new ArrayList<>();
+        while (peek() != TokenType.EOF) {
+            statements.add(parseStatement());
+        }
+        return new ProgramNode(statements);
+    }
+
+    // Each statement as soon as its semicolon is consumed. With a token Iterator as the source, nothing is
+    // held beyond the statement being parsed, so a script can run while the rest of it is still being read.
+    public Iterator<StatementNode> statements() {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return peek() != TokenType.EOF;
+            }
+
+            @Override
+            public StatementNode next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return parseStatement();
+            }
+        };
+    }
+
+
+    // The same grammar as parseProgram(), recording token indexes in the arena in place of node objects;
+    // the cursor must be over the arena's TokenBuffer.
+    void parseProgram(AstArena arena) {
+        int program = arena.add(AstArena.Kind.PROGRAM, tokens.index(), -1, -1);
+        int statement = -1;
+        while (peek() != TokenType.EOF) {
+            statement = parseStatement(arena, program, statement);
+        }
+    }
+
+    private int parseStatement(AstArena arena, int program, int previous) {
+        int statement = arena.add(AstArena.Kind.STATEMENT, tokens.index(), program, previous);
+        skip(TokenType.START_COMMAND);
+        skip(TokenType.VIDEO_IDENTIFIER);
+        skip(TokenType.EQUALS);
+        skip(TokenType.FILE_PATH);
+        if (peek() == TokenType.PIPE_LINE) {
+            int pipeline = arena.add(AstArena.Kind.PIPELINE, tokens.index(), statement, -1);
+            int command = -1;
+            while (match(TokenType.PIPE_LINE)) {
+                command = parseCommand(arena, pipeline, command);
+            }
+        }
+        skip(TokenType.SEMICOLON);
+        return statement;
+    }
+
+    private int parseCommand(AstArena arena, int pipeline, int previous) {
+        int command = arena.add(AstArena.Kind.COMMAND, tokens.index(), pipeline, previous);
+        skip(TokenType.COMMAND);
+        int parameter = -1;
+        while (peek() == TokenType.PARAMETER) {
+            parameter = arena.add(AstArena.Kind.PARAMETER, tokens.index(), command, parameter);
+            tokens.skip();
+            if (peek() != TokenType.NUMBER && peek() != TokenType.FILE_PATH) {
+                throw new RuntimeException("Expected value after parameter but found " + tokens.describe());
+            }
+            tokens.skip();
+        }
+        return command;
+    }
+
+    private StatementNode parseStatement() {
+        Token startCmd = consume(TokenType.START_COMMAND);
+        Token videoId = consume(TokenType.VIDEO_IDENTIFIER);
+        Token eq = consume(TokenType.EQUALS);
+        Token filePath = consume(TokenType.FILE_PATH);
+        PipelineNode pipeline = null;
+        if (match(TokenType.PIPE_LINE)) {
+            pipeline = parsePipeline();
+        }
+        skip(TokenType.SEMICOLON);
+        return new StatementNode(startCmd, videoId, eq, filePath, pipeline);
+    }
+
+    private PipelineNode parsePipeline() {
+        List<CommandNode> commands = new ArrayList<>();
+        commands.add(parseCommand());
+        while (match(TokenType.PIPE_LINE)) {
+            commands.add(parseCommand());
+        }
+        return new PipelineNode(commands);
+    }
+
+    private CommandNode parseCommand() {
+        Token cmd = consume(TokenType.COMMAND);
+        List<ParameterNode> params = new ArrayList<>();
+        while (peek() == TokenType.PARAMETER) {
+            Token param = consume(TokenType.PARAMETER);
+            Token value;
+            if (peek() == TokenType.NUMBER) {
+                value = consume(TokenType.NUMBER);
+            } else if (peek() == TokenType.FILE_PATH) {
+                value = consume(TokenType.FILE_PATH);
+            } else {
+                throw new RuntimeException("Expected value after parameter but found " + tokens.describe());
+            }
+            params.add(new ParameterNode(param, value));
+        }
+        return new CommandNode(cmd, params);
+    }
+}
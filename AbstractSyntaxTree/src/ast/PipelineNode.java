@@ -0,0 +1,11 @@
+package ast;
+
+import java.util.List;
+
+class PipelineNode extends ASTNode {
+    public final List<CommandNode> commands;
+
+    public PipelineNode(List<CommandNode> commands) {
+        this.commands = commands;
+    }
+}
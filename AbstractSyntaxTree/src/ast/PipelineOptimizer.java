@@ -0,0 +1,209 @@
+package ast;
+
+import java.util.*;
+
+// Rewrites pipelines into equivalent ones with fewer passes over the video:
+//   rotate a -> rotate b        rotate (a + b) mod 360, dropped when that is 0
+//   flipX -> flipX              dropped, as for flipY and reverse
+//   resize a -> resize b        resize b, when b sets every parameter a does
+//   speed a -> speed b          speed a * b
+// Two commands of a kind also combine with commands between them that they commute with: steps on single
+// frames (resize, rotate, flips) commute with steps on the timeline (trim, cut, reverse, speed), the flips
+// with each other and with resize. cut and trim move ahead of the frame steps, so those see fewer frames.
+// Commands the rules do not recognize, such as a rotate without a numeric --deg, are left where they are.
+public class PipelineOptimizer {
+    private static final Set<String> FRAME_STEPS = Set.of("resize", "rotate", "flipX", "flipY");
+    private static final Set<String> TIMELINE_STEPS = Set.of("trim", "cut", "reverse", "speed");
+    private static final Set<String> COMMUTING_FRAME_STEPS = Set.of("flipX", "flipY", "resize");
+    private static final Set<String> INVOLUTIONS = Set.of("flipX", "flipY", "reverse");
+
+    private final List<Report> reports = new ArrayList<>();
+
+    public static class Report {
+        private final int statement;
+        private final int before;
+        private final int after;
+        private final List<String> rewrites;
+
+        Report(int statement, int before, int after, List<String> rewrites) {
+            this.statement = statement;
+            this.before = before;
+            this.after = after;
+            this.rewrites = rewrites;
+        }
+
+        public int getStatement() {
+            return statement;
+        }
+
+        public int getPassesSaved() {
+            return before - after;
+        }
+
+        public List<String> getRewrites() {
+            return rewrites;
+        }
+
+        @Override
+        public String toString() {
+            String summary = "statement " + statement + ": " + before + " passes -> " + after + ", saved " + getPassesSaved();
+            return rewrites.isEmpty() ? summary : summary + " (" + String.join("; ", rewrites) + ")";
+        }
+    }
+
+    public ProgramNode optimize(ProgramNode program) {
+        List<StatementNode> statements = new ArrayList<>(program.statements.size());
+        for (StatementNode statement : program.statements) statements.add(optimize(statement));
+        return new ProgramNode(statements);
+    }
+
+    // statements are numbered from 1 in the order they are passed in, so this also works on Parser.statements()
+    public StatementNode optimize(StatementNode statement) {
+        if (statement.pipeline == null) {
+            reports.add(new Report(reports.size() + 1, 0, 0, List.of()));
+            return statement;
+        }
+        List<CommandNode> commands = new ArrayList<>(statement.pipeline.commands);
+        List<String> rewrites = new ArrayList<>();
+        while (moveCutsForward(commands, rewrites) | combine(commands, rewrites)) {
+            // each round either moves a cut or trim ahead or removes a command, so this ends
+        }
+        reports.add(new Report(reports.size() + 1, statement.pipeline.commands.size(), commands.size(), rewrites));
+        if (rewrites.isEmpty()) return statement;
+        return new StatementNode(statement.startCommand, statement.videoIdentifier, statement.equals, statement.filePath,
+                commands.isEmpty() ? null : new PipelineNode(commands));
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public int getPassesSaved() {
+        int saved = 0;
+        for (Report report : reports) saved += report.getPassesSaved();
+        return saved;
+    }
+
+    private static boolean moveCutsForward(List<CommandNode> commands, List<String> rewrites) {
+        boolean moved = false;
+        for (int i = 1; i < commands.size(); i++) {
+            String name = name(commands.get(i));
+            if (!name.equals("cut") && !name.equals("trim")) continue;
+            int target = i;
+            while (target > 0 && FRAME_STEPS.contains(name(commands.get(target - 1)))) target--;
+            if (target == i) continue;
+            rewrites.add(name + " moved ahead of " + name(commands.get(target)));
+            commands.add(target, commands.remove(i));
+            moved = true;
+        }
+        return moved;
+    }
+
+    // applies the first rule that matches and reports whether there was one
+    private static boolean combine(List<CommandNode> commands, List<String> rewrites) {
+        for (int i = 0; i < commands.size(); i++) {
+            CommandNode first = commands.get(i);
+            Long degrees = name(first).equals("rotate") ? onlyNumber(first, "--deg") : null;
+            if (degrees != null && Math.floorMod(degrees, 360) == 0) {
+                commands.remove(i);
+                rewrites.add("rotate " + degrees + " dropped");
+                return true;
+            }
+            for (int j = i + 1; j < commands.size(); j++) {
+                CommandNode second = commands.get(j);
+                if (name(first).equals(name(second))) {
+                    if (merge(commands, i, j, rewrites)) return true;
+                    break;
+                }
+                if (!commute(name(first), name(second))) break;
+            }
+        }
+        return false;
+    }
+
+    // merges the command at j into the one at i, where it can be moved because everything between commutes
+    private static boolean merge(List<CommandNode> commands, int i, int j, List<String> rewrites) {
+        CommandNode first = commands.get(i);
+        CommandNode second = commands.get(j);
+        String name = name(first);
+        if (INVOLUTIONS.contains(name) && first.parameters.isEmpty() && second.parameters.isEmpty()) {
+            commands.remove(j);
+            commands.remove(i);
+            rewrites.add(name + " twice cancels");
+            return true;
+        }
+        if (name.equals("rotate")) {
+            Long a = onlyNumber(first, "--deg");
+            Long b = onlyNumber(second, "--deg");
+            if (a == null || b == null) return false;
+            long sum = Math.floorMod(a + b, 360);
+            commands.remove(j);
+            if (sum == 0) {
+                commands.remove(i);
+                rewrites.add("rotate " + a + " + rotate " + b + " cancel");
+            } else {
+                commands.set(i, withNumber(first, sum));
+                rewrites.add("rotate " + a + " + rotate " + b + " = rotate " + sum);
+            }
+            return true;
+        }
+        if (name.equals("speed")) {
+            Long a = onlyNumber(first, "--lvl");
+            Long b = onlyNumber(second, "--lvl");
+            if (a == null || b == null) return false;
+            long product;
+            try {
+                product = Math.multiplyExact(a, b);
+            } catch (ArithmeticException e) {
+                return false;
+            }
+            commands.remove(j);
+            commands.set(i, withNumber(first, product));
+            rewrites.add("speed " + a + " x speed " + b + " = speed " + product);
+            return true;
+        }
+        if (name.equals("resize")) {
+            // what a resize does with a dimension it leaves out depends on the frame it gets, so the earlier
+            // one only goes when the later one overrides all of it
+            Set<String> overridden = new HashSet<>();
+            for (ParameterNode parameter : second.parameters) overridden.add(parameter.parameter.text);
+            for (ParameterNode parameter : first.parameters) {
+                if (!overridden.contains(parameter.parameter.text)) return false;
+            }
+            commands.remove(j);
+            commands.set(i, second);
+            rewrites.add("resize replaced by the next resize");
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean commute(String a, String b) {
+        return FRAME_STEPS.contains(a) && TIMELINE_STEPS.contains(b)
+                || TIMELINE_STEPS.contains(a) && FRAME_STEPS.contains(b)
+                || COMMUTING_FRAME_STEPS.contains(a) && COMMUTING_FRAME_STEPS.contains(b) && !a.equals(b);
+    }
+
+    private static String name(CommandNode command) {
+        return command.command.text;
+    }
+
+    // the value when the command's only parameter is the given one with a number that fits in a long
+    private static Long onlyNumber(CommandNode command, String parameter) {
+        if (command.parameters.size() != 1) return null;
+        ParameterNode only = command.parameters.get(0);
+        if (!only.parameter.text.equals(parameter) || only.value.type != TokenType.NUMBER) return null;
+        try {
+            return Long.parseLong(only.value.text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static CommandNode withNumber(CommandNode command, long value) {
+        ParameterNode parameter = command.parameters.get(0);
+        List<ParameterNode> parameters = new ArrayList<>(1);
+        parameters.add(new ParameterNode(parameter.parameter, new Token(TokenType.NUMBER, String.valueOf(value))));
+        return new CommandNode(command.command, parameters);
+    }
+}
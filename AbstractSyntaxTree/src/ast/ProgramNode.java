@@ -0,0 +1,16 @@
+package ast;
+
+import java.util.List;
+
+class ProgramNode extends ASTNode {
+    public final List<StatementNode> statements;
+
+    public ProgramNode(List<StatementNode> statements) {
+        this.statements = statements;
+    }
+
+    @Override
+    public String toString() {
+        return TreePrinter.render(printer -> printer.print(this));
+    }
+}
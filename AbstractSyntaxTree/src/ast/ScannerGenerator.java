@@ -0,0 +1,653 @@
+package ast;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Compiles the TokenType patterns ahead of time into GeneratedLexer: one DFA over character classes for the
+// union of all patterns, where the longest match wins and ties go to the earlier TokenType. Only the regex
+// subset the patterns use is understood: literals, ., escapes, [classes], groups, |, ?, * and +. A trailing \b
+// becomes a flag on the accepting states, a leading \b is dropped (a token is matched on its own, as in
+// Lexer, where it always holds before a word character) and so is the folder path's negative lookahead:
+// a quoted path ending in a video extension is a FILE_PATH by priority instead.
+//
+// forLaboratory3() compiles the patterns of laboratory3.Lexer the same way into a scanner that recovers as that
+// Lexer does: input no pattern matches is skipped a character at a time and reported. There a token is searched
+// for rather than matched at a given place, so a leading \b is kept, as a second start state for positions
+// just after a word character.
+//
+// Run with the directories to write to, AbstractSyntaxTree/src/ast and Lab3/src/laboratory3 by default.
+public class ScannerGenerator {
+    private static final int CHARS = Character.MAX_VALUE + 1;
+    private static final int PER_LINE = 24;
+
+    private final String packageName;
+    private final String className;
+    private final boolean recovering;
+    private final List<String> types = new ArrayList<>();
+
+    // Thompson NFA: character edges as (set, target) pairs plus ε-edges; state 0 starts every pattern
+    private final List<int[]> sets = new ArrayList<>();
+    private final List<List<int[]>> edges = new ArrayList<>();
+    private final List<List<Integer>> epsilons = new ArrayList<>();
+    private final Map<Integer, Integer> acceptingRule = new HashMap<>();
+    private final Set<Integer> boundaryRules = new HashSet<>();
+    // NFA start state for positions after a word character, where rules with a leading \b cannot begin
+    private final int inWordStart;
+
+    public ScannerGenerator(String className) {
+        this("ast", className, false);
+        for (TokenType type : TokenType.values()) {
+            if (type == TokenType.EOF) continue;
+            addRule(type.name(), type.pattern);
+        }
+    }
+
+    private ScannerGenerator(String packageName, String className, boolean recovering) {
+        this.packageName = packageName;
+        this.className = className;
+        this.recovering = recovering;
+        newState();
+        inWordStart = recovering ? newState() : 0;
+    }
+
+    // The alternatives of laboratory3.Lexer in its priority order. That module is compiled on its own, so they
+    // are repeated here, as in its LexerBenchmark, and have to be kept in step with it.
+    public static ScannerGenerator forLaboratory3(String className) {
+        ScannerGenerator generator = new ScannerGenerator("laboratory3", className, true);
+        generator.addRule("COMMAND", "\\b(cut|fade|overlay|trim|speed|reverse|resize|rotate|flipX|flipY)\\b");
+        generator.addRule("PARAMETER", "--(x|y|w|h|deg|lvl|video|format)\\b");
+        generator.addRule("NUMBER", "-?\\d+");
+        generator.addRule("VIDEO_IDENTIFIER", "video");
+        generator.addRule("FILE_PATH", "\"[^\"]+\\.(mp4|avi|mov|flv|mkv)\"");
+        generator.addRule("FOLDER_PATH", "\"(?!.*\\.(mp4|avi|mov|flv|mkv)$)[^\"]+\"");
+        generator.addRule("EQUALS", "=");
+        generator.addRule("START_COMMAND", "imp");
+        generator.addRule("PIPE_LINE", "->");
+        generator.addRule("SEMICOLON", ";");
+        return generator;
+    }
+
+    public static void main(String[] args) throws IOException {
+        write(new ScannerGenerator("GeneratedLexer"), Path.of(args.length > 0 ? args[0] : "AbstractSyntaxTree/src/ast"));
+        write(forLaboratory3("GeneratedLexer"), Path.of(args.length > 1 ? args[1] : "Lab3/src/laboratory3"));
+    }
+
+    private static void write(ScannerGenerator generator, Path directory) throws IOException {
+        Path file = directory.resolve(generator.className + ".java");
+        Files.writeString(file, generator.generate(), StandardCharsets.UTF_8);
+        System.out.println("Wrote " + file);
+    }
+
+    // ---------------------------------------------------------------- patterns to NFA
+
+    private void addRule(String type, String pattern) {
+        int rule = types.size();
+        types.add(type);
+        Node node = new PatternParser(pattern).parse();
+        List<Node> parts = node instanceof Sequence ? ((Sequence) node).parts : new ArrayList<>(List.of(node));
+        boolean leadingBoundary = !parts.isEmpty() && parts.get(0) instanceof Boundary;
+        if (leadingBoundary) parts.remove(0);
+        if (!parts.isEmpty() && parts.get(parts.size() - 1) instanceof Boundary) {
+            parts.remove(parts.size() - 1);
+            boundaryRules.add(rule);
+        }
+
+        int start = newState();
+        epsilons.get(0).add(start);
+        if (recovering && !leadingBoundary) epsilons.get(inWordStart).add(start);
+        int end = start;
+        for (Node part : parts) end = build(part, end, pattern);
+        acceptingRule.put(end, rule);
+        if (recovering && leadingBoundary) checkStartsWithWordCharacter(start, pattern);
+    }
+
+    // a leading \b holds after a non-word character only when the token starts with a word character
+    private void checkStartsWithWordCharacter(int start, String pattern) {
+        BitSet first = closure(List.of(start));
+        for (int state = first.nextSetBit(0); state >= 0; state = first.nextSetBit(state + 1)) {
+            for (int[] edge : edges.get(state)) {
+                int[] ranges = sets.get(edge[0]);
+                for (int i = 0; i < ranges.length; i += 2) {
+                    for (int c = ranges[i]; c <= ranges[i + 1]; c++) {
+                        if (!Character.isLetterOrDigit(c) && c != '_') {
+                            throw new IllegalArgumentException("\\b is only supported before word characters: " + pattern);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int newState() {
+        edges.add(new ArrayList<>());
+        epsilons.add(new ArrayList<>());
+        return edges.size() - 1;
+    }
+
+    // adds the fragment for node after state from and returns its end state
+    private int build(Node node, int from, String pattern) {
+        if (node instanceof CharSet) {
+            int to = newState();
+            sets.add(((CharSet) node).ranges);
+            edges.get(from).add(new int[]{sets.size() - 1, to});
+            return to;
+        }
+        if (node instanceof Sequence) {
+            int end = from;
+            for (Node part : ((Sequence) node).parts) end = build(part, end, pattern);
+            return end;
+        }
+        if (node instanceof Alternation) {
+            int to = newState();
+            for (Node option : ((Alternation) node).options) {
+                int start = newState();
+                epsilons.get(from).add(start);
+                epsilons.get(build(option, start, pattern)).add(to);
+            }
+            return to;
+        }
+        if (node instanceof Repeat) {
+            Repeat repeat = (Repeat) node;
+            int start = newState();
+            epsilons.get(from).add(start);
+            int end = build(repeat.body, start, pattern);
+            int to = newState();
+            epsilons.get(end).add(to);
+            if (repeat.many) epsilons.get(end).add(start);
+            if (repeat.optional) epsilons.get(start).add(to);
+            return to;
+        }
+        throw new IllegalArgumentException("\\b is only supported at the start or end of a pattern: " + pattern);
+    }
+
+    // ---------------------------------------------------------------- NFA to DFA
+
+    private int[] classStarts;   // classStarts[i] begins the i-th run of characters, which has class runClasses[i]
+    private int[] runClasses;
+    private int classCount;
+    private int[] classSample;   // a character of each class
+    private final List<int[]> transitions = new ArrayList<>();
+    private final List<Integer> accept = new ArrayList<>();
+    private final List<Integer> acceptAtBoundary = new ArrayList<>();
+    private int inWordStartState;
+
+    // Splits the characters into runs where the same sets apply and gives runs with the same sets one
+    // class; class 0 is the characters no pattern uses.
+    private void computeClasses() {
+        TreeSet<Integer> cuts = new TreeSet<>(List.of(0, CHARS));
+        for (int[] ranges : sets) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                cuts.add(ranges[i]);
+                cuts.add(ranges[i + 1] + 1);
+            }
+        }
+        Integer[] starts = cuts.toArray(new Integer[0]);
+        Map<BitSet, Integer> classes = new HashMap<>();
+        classes.put(new BitSet(), 0);
+        List<Integer> samples = new ArrayList<>(List.of(-1));
+        List<Integer> runStarts = new ArrayList<>();
+        List<Integer> runClassList = new ArrayList<>();
+        for (int i = 0; i + 1 < starts.length; i++) {
+            int c = starts[i];
+            BitSet member = new BitSet();
+            for (int set = 0; set < sets.size(); set++) {
+                if (contains(sets.get(set), c)) member.set(set);
+            }
+            Integer cls = classes.get(member);
+            if (cls == null) {
+                cls = classes.size();
+                classes.put(member, cls);
+                samples.add(c);
+            }
+            if (runClassList.isEmpty() || runClassList.get(runClassList.size() - 1) != (int) cls) {
+                runStarts.add(c);
+                runClassList.add(cls);
+            }
+        }
+        classCount = classes.size();
+        classSample = samples.stream().mapToInt(Integer::intValue).toArray();
+        classStarts = runStarts.stream().mapToInt(Integer::intValue).toArray();
+        runClasses = runClassList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void determinize() {
+        computeClasses();
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> subsets = new ArrayList<>();
+        BitSet start = closure(List.of(0));
+        ids.put(start, 0);
+        subsets.add(start);
+        BitSet inWord = closure(List.of(inWordStart));
+        inWordStartState = ids.computeIfAbsent(inWord, subset -> {
+            subsets.add(subset);
+            return subsets.size() - 1;
+        });
+        for (int id = 0; id < subsets.size(); id++) {
+            BitSet subset = subsets.get(id);
+            resolveAccept(subset);
+            int[] row = new int[classCount];
+            Arrays.fill(row, -1);
+            for (int cls = 1; cls < classCount; cls++) {
+                List<Integer> targets = new ArrayList<>();
+                for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+                    for (int[] edge : edges.get(state)) {
+                        if (contains(sets.get(edge[0]), classSample[cls])) targets.add(edge[1]);
+                    }
+                }
+                if (targets.isEmpty()) continue;
+                BitSet next = closure(targets);
+                Integer target = ids.get(next);
+                if (target == null) {
+                    target = subsets.size();
+                    ids.put(next, target);
+                    subsets.add(next);
+                }
+                row[cls] = target;
+            }
+            transitions.add(row);
+        }
+    }
+
+    private BitSet closure(List<Integer> states) {
+        BitSet closure = new BitSet();
+        Deque<Integer> work = new ArrayDeque<>(states);
+        while (!work.isEmpty()) {
+            int state = work.pop();
+            if (closure.get(state)) continue;
+            closure.set(state);
+            work.addAll(epsilons.get(state));
+        }
+        return closure;
+    }
+
+    // the earliest rule accepted outright, and an earlier one that only counts before a non-word character
+    private void resolveAccept(BitSet subset) {
+        int plain = Integer.MAX_VALUE;
+        int bounded = Integer.MAX_VALUE;
+        for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+            Integer rule = acceptingRule.get(state);
+            if (rule == null) continue;
+            if (boundaryRules.contains(rule)) bounded = Math.min(bounded, rule);
+            else plain = Math.min(plain, rule);
+        }
+        accept.add(plain == Integer.MAX_VALUE ? -1 : plain);
+        acceptAtBoundary.add(bounded < plain ? bounded : -1);
+    }
+
+    // ---------------------------------------------------------------- DFA to Java
+
+    public String generate() {
+        if (transitions.isEmpty()) determinize();
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("import java.util.List;\n\n");
+        if (recovering) {
+            out.append("// Generated by ScannerGenerator from the patterns of Lexer; regenerate it instead of editing.\n");
+            out.append("// A DFA with ").append(transitions.size()).append(" states over ").append(classCount)
+                    .append(" character classes: the longest match wins, ties go to the earlier pattern.\n");
+            out.append("// Input where no token starts is an error, as in Lexer. Unlike there, a quoted folder path on the last\n");
+            out.append("// line is still a FOLDER_PATH when that line ends in a video extension.\n");
+        } else {
+            out.append("// Generated by ScannerGenerator from the TokenType patterns; regenerate it instead of editing.\n");
+            out.append("// A DFA with ").append(transitions.size()).append(" states over ").append(classCount)
+                    .append(" character classes: the longest match wins, ties go to the earlier TokenType.\n");
+        }
+        out.append("public class ").append(className).append(" {\n");
+
+        out.append("    private static final TokenType[] TYPES = {");
+        StringJoiner names = new StringJoiner(",");
+        for (String type : types) names.add("\n            TokenType." + type);
+        out.append(names).append("\n    };\n");
+        out.append("    private static final int CLASS_COUNT = ").append(classCount).append(";\n");
+        if (recovering) {
+            out.append("    // where matching starts after a word character, which a leading \\b rules out\n");
+            out.append("    private static final int IN_WORD_START = ").append(inWordStartState).append(";\n");
+        }
+        out.append("\n");
+
+        int[] ascii = new int[128];
+        for (int c = 0; c < 128; c++) ascii[c] = classOf(c);
+        int firstRun = 0;
+        while (firstRun + 1 < classStarts.length && classStarts[firstRun + 1] <= 128) firstRun++;
+        int[] rangeStarts = Arrays.copyOfRange(classStarts, firstRun, classStarts.length);
+        rangeStarts[0] = 128;
+        int[] rangeClasses = Arrays.copyOfRange(runClasses, firstRun, runClasses.length);
+
+        out.append("    // character class of each ASCII character; the rest are found by binary search in the runs below\n");
+        array(out, "byte", "ASCII_CLASSES", ascii);
+        array(out, "char", "RANGE_STARTS", rangeStarts);
+        array(out, "byte", "RANGE_CLASSES", rangeClasses);
+        out.append("\n    // next state by state * CLASS_COUNT + class, -1 where no token can continue\n");
+        array(out, "short", "TRANSITIONS", transitions.stream().flatMapToInt(Arrays::stream).toArray());
+        out.append("\n    // index into TYPES of the token ending in each state, -1 for none; ACCEPT_AT_BOUNDARY overrides\n");
+        out.append("    // ACCEPT when the next character is not a word character (a trailing \\b)\n");
+        array(out, "byte", "ACCEPT", accept.stream().mapToInt(Integer::intValue).toArray());
+        array(out, "byte", "ACCEPT_AT_BOUNDARY", acceptAtBoundary.stream().mapToInt(Integer::intValue).toArray());
+
+        out.append(String.join("\n",
+                "",
+                "    private final String input;",
+                "",
+                "    public " + className + "(String input) {",
+                "        this.input = input;",
+                "    }",
+                "",
+                "    public List<Token> tokenize() {",
+                "        return tokenizeToBuffer().toTokens();",
+                "    }",
+                "",
+                "    public TokenBuffer tokenizeToBuffer() {",
+                "        TokenBuffer tokens = new TokenBuffer(input);",
+                "        int length = input.length();",
+                "        int position = 0;",
+                recovering ? RECOVERING_SCAN : STRICT_SCAN,
+                "    }",
+                "",
+                "    private static int classOf(char c) {",
+                "        if (c < 128) return ASCII_CLASSES[c];",
+                "        int low = 0;",
+                "        int high = RANGE_STARTS.length - 1;",
+                "        while (low < high) {",
+                "            int middle = (low + high + 1) >>> 1;",
+                "            if (RANGE_STARTS[middle] <= c) low = middle;",
+                "            else high = middle - 1;",
+                "        }",
+                "        return RANGE_CLASSES[low];",
+                "    }",
+                "",
+                "    // the word characters of \\b in java.util.regex",
+                "    private static boolean isWordChar(char c) {",
+                "        return Character.isLetterOrDigit(c) || c == '_';",
+                "    }",
+                "}",
+                ""));
+        return out.toString();
+    }
+
+    // the body of tokenizeToBuffer() after position is set: the scanner Lexer replaces, which throws on input
+    // no pattern matches
+    private static final String STRICT_SCAN = String.join("\n",
+            "        while (true) {",
+            "            while (position < length && input.charAt(position) <= ' ') position++;",
+            "            if (position == length) break;",
+            "",
+            "            int state = 0;",
+            longestMatch(),
+            "            if (type < 0) {",
+            "                throw new RuntimeException(\"Unexpected token: \" + input.substring(position).trim());",
+            "            }",
+            "            tokens.add(TYPES[type], position, end - position);",
+            "            position = end;",
+            "        }",
+            "        tokens.add(TokenType.EOF, length, 0);",
+            "        return tokens;");
+
+    // and the one laboratory3.Lexer searches with, which records what lies between tokens as errors
+    private static final String RECOVERING_SCAN = String.join("\n",
+            "        // where the input not covered by a token begins",
+            "        int gap = 0;",
+            "        while (position < length) {",
+            "            int state = position > 0 && isWordChar(input.charAt(position - 1)) ? IN_WORD_START : 0;",
+            longestMatch(),
+            "            if (type < 0) {",
+            "                // no token starts here, so the character is unmatched",
+            "                position++;",
+            "                continue;",
+            "            }",
+            "            Lexer.recordUnmatched(input, tokens, gap, position);",
+            "            if (TYPES[type] == TokenType.FILE_PATH || TYPES[type] == TokenType.FOLDER_PATH) {",
+            "                tokens.add(TYPES[type], position + 1, end - position - 2);",
+            "            } else {",
+            "                tokens.add(TYPES[type], position, end - position);",
+            "            }",
+            "            position = end;",
+            "            gap = end;",
+            "        }",
+            "        Lexer.recordUnmatched(input, tokens, gap, length);",
+            "        tokens.add(TokenType.EOF, length, 0);",
+            "        Lexer.reportErrors(tokens);",
+            "        return tokens;");
+
+    // runs the DFA from state at position, leaving the longest token in type and end (type -1 for none)
+    private static String longestMatch() {
+        return String.join("\n",
+                "            int type = -1;",
+                "            int end = position;",
+                "            for (int i = position; i < length; ) {",
+                "                state = TRANSITIONS[state * CLASS_COUNT + classOf(input.charAt(i))];",
+                "                if (state < 0) break;",
+                "                i++;",
+                "                if (ACCEPT_AT_BOUNDARY[state] >= 0 && (i == length || !isWordChar(input.charAt(i)))) {",
+                "                    type = ACCEPT_AT_BOUNDARY[state];",
+                "                    end = i;",
+                "                } else if (ACCEPT[state] >= 0) {",
+                "                    type = ACCEPT[state];",
+                "                    end = i;",
+                "                }",
+                "            }");
+    }
+
+    private int classOf(int c) {
+        int run = Arrays.binarySearch(classStarts, c);
+        return runClasses[run >= 0 ? run : -run - 2];
+    }
+
+    private static void array(StringBuilder out, String type, String name, int[] values) {
+        out.append("    private static final ").append(type).append("[] ").append(name).append(" = {");
+        for (int i = 0; i < values.length; i++) {
+            out.append(i % PER_LINE == 0 ? "\n            " : " ");
+            out.append(type.equals("char") ? String.format("'\\u%04x'", values[i]) : String.valueOf(values[i]));
+            if (i + 1 < values.length) out.append(',');
+        }
+        out.append("\n    };\n");
+    }
+
+    private static boolean contains(int[] ranges, int c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] <= c && c <= ranges[i + 1]) return true;
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- regex subset
+
+    private abstract static class Node {
+    }
+
+    // sorted, disjoint, inclusive [low, high] pairs
+    private static class CharSet extends Node {
+        final int[] ranges;
+
+        CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+    }
+
+    private static class Sequence extends Node {
+        final List<Node> parts;
+
+        Sequence(List<Node> parts) {
+            this.parts = parts;
+        }
+    }
+
+    private static class Alternation extends Node {
+        final List<Node> options;
+
+        Alternation(List<Node> options) {
+            this.options = options;
+        }
+    }
+
+    private static class Repeat extends Node {
+        final Node body;
+        final boolean optional;
+        final boolean many;
+
+        Repeat(Node body, boolean optional, boolean many) {
+            this.body = body;
+            this.optional = optional;
+            this.many = many;
+        }
+    }
+
+    private static class Boundary extends Node {
+    }
+
+    private static class PatternParser {
+        private final String pattern;
+        private int position;
+        private int lookaheads;
+
+        PatternParser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() {
+            Node node = alternation();
+            if (position < pattern.length()) throw error("unbalanced )");
+            return node;
+        }
+
+        private Node alternation() {
+            List<Node> options = new ArrayList<>();
+            options.add(sequence());
+            while (peek('|')) {
+                position++;
+                options.add(sequence());
+            }
+            return options.size() == 1 ? options.get(0) : new Alternation(options);
+        }
+
+        private Node sequence() {
+            List<Node> parts = new ArrayList<>();
+            while (position < pattern.length() && !peek('|') && !peek(')')) {
+                Node atom = atom();
+                if (atom == null) continue;
+                if (peek('+') || peek('*') || peek('?')) {
+                    char quantifier = pattern.charAt(position++);
+                    atom = new Repeat(atom, quantifier != '+', quantifier != '?');
+                }
+                parts.add(atom);
+            }
+            return parts.size() == 1 ? parts.get(0) : new Sequence(parts);
+        }
+
+        // null for a lookahead, which matches no characters and is dropped with everything in it
+        private Node atom() {
+            char c = pattern.charAt(position++);
+            switch (c) {
+                case '(':
+                    boolean lookahead = pattern.startsWith("?!", position) || pattern.startsWith("?=", position);
+                    if (lookahead || pattern.startsWith("?:", position)) position += 2;
+                    if (lookahead) lookaheads++;
+                    Node group = alternation();
+                    if (!peek(')')) throw error("missing )");
+                    position++;
+                    if (lookahead) lookaheads--;
+                    return lookahead ? null : group;
+                case '[':
+                    return charClass();
+                case '.':
+                    return new CharSet(negate(new int[]{'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029}));
+                case '\\':
+                    char escaped = pattern.charAt(position++);
+                    if (escaped == 'b') return new Boundary();
+                    return new CharSet(escape(escaped));
+                case '$':
+                case '^':
+                    if (lookaheads > 0) return null;
+                    throw error("anchors are not supported");
+                default:
+                    return new CharSet(new int[]{c, c});
+            }
+        }
+
+        private Node charClass() {
+            boolean negated = peek('^');
+            if (negated) position++;
+            List<int[]> ranges = new ArrayList<>();
+            while (!peek(']')) {
+                if (position >= pattern.length()) throw error("missing ]");
+                char c = pattern.charAt(position++);
+                if (c == '\\') {
+                    ranges.add(escape(pattern.charAt(position++)));
+                } else if (peek('-') && position + 1 < pattern.length() && pattern.charAt(position + 1) != ']') {
+                    char high = pattern.charAt(position + 1);
+                    position += 2;
+                    ranges.add(new int[]{c, high});
+                } else {
+                    ranges.add(new int[]{c, c});
+                }
+            }
+            position++;
+            int[] union = union(ranges);
+            return new CharSet(negated ? negate(union) : union);
+        }
+
+        private int[] escape(char c) {
+            switch (c) {
+                case 'd':
+                    return new int[]{'0', '9'};
+                case 'w':
+                    return new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+                case 's':
+                    return new int[]{'\t', '\r', ' ', ' '};
+                case 'n':
+                    return new int[]{'\n', '\n'};
+                case 't':
+                    return new int[]{'\t', '\t'};
+                default:
+                    if (Character.isLetterOrDigit(c)) throw error("unsupported escape \\" + c);
+                    return new int[]{c, c};
+            }
+        }
+
+        private boolean peek(char c) {
+            return position < pattern.length() && pattern.charAt(position) == c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + position + " in " + pattern);
+        }
+    }
+
+    private static int[] union(List<int[]> parts) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int[] part : parts) {
+            for (int i = 0; i < part.length; i += 2) ranges.add(new int[]{part[i], part[i + 1]});
+        }
+        ranges.sort(Comparator.comparingInt(range -> range[0]));
+        List<Integer> merged = new ArrayList<>();
+        for (int[] range : ranges) {
+            int last = merged.size() - 1;
+            if (last > 0 && range[0] <= merged.get(last) + 1) {
+                merged.set(last, Math.max(merged.get(last), range[1]));
+            } else {
+                merged.add(range[0]);
+                merged.add(range[1]);
+            }
+        }
+        return merged.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] negate(int[] ranges) {
+        List<Integer> result = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result.add(next);
+                result.add(ranges[i] - 1);
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next < CHARS) {
+            result.add(next);
+            result.add(CHARS - 1);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
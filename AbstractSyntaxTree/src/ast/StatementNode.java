@@ -0,0 +1,21 @@
+package ast;
+
+class StatementNode extends ASTNode {
+    public final Token startCommand;
+    public final Token videoIdentifier;
+    public final Token equals;
+    public final Token filePath;
+    public final PipelineNode pipeline;
+
+    public StatementNode(Token startCommand, Token videoIdentifier, Token equals, Token filePath, PipelineNode pipeline) {
+        this.startCommand = startCommand;
+        this.videoIdentifier = videoIdentifier;
+        this.equals = equals;
+        this.filePath = filePath;
+        this.pipeline = pipeline;
+    }
+
+    public String toTreeString(String indent) {
+        return TreePrinter.render(printer -> printer.printTree(this, indent));
+    }
+}
@@ -0,0 +1,16 @@
+package ast;
+
+class Token {
+    public final TokenType type;
+    public final String text;
+
+    public Token(TokenType type, String text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Token(%s, '%s')", type.name(), text);
+    }
+}
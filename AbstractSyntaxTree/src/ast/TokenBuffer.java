@@ -0,0 +1,106 @@
+package ast;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+// Tokens as parallel arrays of type, start and length into the source, so lexing allocates no per-token
+// objects; the last entry is always EOF. Token objects are only created for tokens that are asked for.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String source;
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int size;
+
+    TokenBuffer(String source) {
+        this.source = source;
+    }
+
+    void add(TokenType type, int start, int length) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int end(int index) {
+        return starts[index] + lengths[index];
+    }
+
+    // a view of the token's text in the source; nothing is copied until it is turned into a String
+    public CharSequence text(int index) {
+        return CharBuffer.wrap(source, starts[index], starts[index] + lengths[index]);
+    }
+
+    public boolean textEquals(int index, String text) {
+        return lengths[index] == text.length() && source.startsWith(text, starts[index]);
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), source.substring(starts[index], starts[index] + lengths[index]));
+    }
+
+    public List<Token> toTokens() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) tokens.add(token(i));
+        return tokens;
+    }
+
+    public TokenCursor cursor() {
+        return new TokenCursor() {
+            private int position;
+
+            @Override
+            public TokenType peekType() {
+                return TYPES[types[position]];
+            }
+
+            @Override
+            public int index() {
+                return position;
+            }
+
+            @Override
+            public Token take() {
+                return token(position++);
+            }
+
+            @Override
+            public void skip() {
+                position++;
+            }
+
+            @Override
+            public String describe() {
+                return token(position).toString();
+            }
+        };
+    }
+}
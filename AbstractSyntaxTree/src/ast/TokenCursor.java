@@ -0,0 +1,91 @@
+package ast;
+
+import java.util.Iterator;
+import java.util.List;
+
+// What the Parser reads tokens through, so that it can run on a List<Token>, a TokenBuffer or a token Iterator.
+// Only take() produces a Token; tokens the AST does not keep are passed over with skip().
+interface TokenCursor {
+    TokenType peekType();
+
+    // position of the current token, an index into the list or buffer, or a count of tokens read before it
+    int index();
+
+    Token take();
+
+    void skip();
+
+    // the current token in Token.toString() form, for error messages
+    String describe();
+
+    static TokenCursor of(List<Token> tokens) {
+        return new TokenCursor() {
+            private int position;
+
+            @Override
+            public TokenType peekType() {
+                return tokens.get(position).type;
+            }
+
+            @Override
+            public int index() {
+                return position;
+            }
+
+            @Override
+            public Token take() {
+                return tokens.get(position++);
+            }
+
+            @Override
+            public void skip() {
+                position++;
+            }
+
+            @Override
+            public String describe() {
+                return tokens.get(position).toString();
+            }
+        };
+    }
+
+    // pulls one token ahead from the iterator and keeps nothing behind it; a missing EOF is supplied
+    static TokenCursor of(Iterator<Token> tokens) {
+        return new TokenCursor() {
+            private Token current = advance();
+            private int position;
+
+            private Token advance() {
+                return tokens.hasNext() ? tokens.next() : new Token(TokenType.EOF, "");
+            }
+
+            @Override
+            public TokenType peekType() {
+                return current.type;
+            }
+
+            @Override
+            public int index() {
+                return position;
+            }
+
+            @Override
+            public Token take() {
+                Token token = current;
+                skip();
+                return token;
+            }
+
+            @Override
+            public void skip() {
+                current = advance();
+                position++;
+            }
+
+            @Override
+            public String describe() {
+                return current.toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package ast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Writes an AST straight to an Appendable, a statement at a time, with one indent buffer reused throughout.
+// TREE is the box-drawing layout of ProgramNode.toString(); JSON_LINES is one JSON object per statement,
+//   {"file":"in.mp4","pipeline":[{"command":"cut","parameters":[{"name":"--x","value":10}]}]}
+// with paths unquoted and numbers as JSON numbers.
+public class TreePrinter {
+    public enum Format {
+        TREE, JSON_LINES
+    }
+
+    private static final String BRANCH = "├── ";
+    private static final String LAST_BRANCH = "└── ";
+    private static final String LINE = "│   ";
+    private static final String SPACE = "    ";
+
+    private final Appendable out;
+    private final Format format;
+    private final StringBuilder indent = new StringBuilder();
+
+    public TreePrinter(Appendable out) {
+        this(out, Format.TREE);
+    }
+
+    public TreePrinter(Appendable out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    public void print(ProgramNode program) throws IOException {
+        if (format == Format.TREE) out.append("Program\n");
+        for (StatementNode statement : program.statements) print(statement);
+    }
+
+    // only the statement under construction exists as objects at any time
+    public void print(AstArena arena) throws IOException {
+        if (format == Format.TREE) out.append("Program\n");
+        for (int statement = arena.firstChild(arena.root()); statement >= 0; statement = arena.nextSibling(statement)) {
+            print(arena.statementNode(statement));
+        }
+    }
+
+    // one statement, indented as a child of Program or as one JSON line
+    public void print(StatementNode statement) throws IOException {
+        if (format == Format.JSON_LINES) {
+            printJson(statement);
+        } else {
+            printTree(statement, SPACE);
+        }
+    }
+
+    void printTree(StatementNode statement, CharSequence baseIndent) throws IOException {
+        indent.setLength(0);
+        indent.append(baseIndent);
+        line("Statement");
+        line(BRANCH, "StartCommand: ", statement.startCommand.text);
+        line(BRANCH, "VideoIdentifier: ", statement.videoIdentifier.text);
+        line(BRANCH, "Equals: ", statement.equals.text);
+        line(BRANCH, "FilePath: ", statement.filePath.text);
+        if (statement.pipeline == null) return;
+
+        line(LAST_BRANCH, "Pipeline", "");
+        int statementIndent = indent.length();
+        for (int i = 0; i < statement.pipeline.commands.size(); i++) {
+            boolean isLast = i == statement.pipeline.commands.size() - 1;
+            indent.setLength(statementIndent);
+            indent.append(isLast ? SPACE : LINE);
+            printTree(statement.pipeline.commands.get(i), isLast);
+        }
+        indent.setLength(statementIndent);
+    }
+
+    void printTree(CommandNode command, CharSequence baseIndent, boolean isLast) throws IOException {
+        indent.setLength(0);
+        indent.append(baseIndent);
+        printTree(command, isLast);
+    }
+
+    // a command under the current indent; its parameters go one level deeper
+    private void printTree(CommandNode command, boolean isLast) throws IOException {
+        line(isLast ? LAST_BRANCH : BRANCH, "Command: ", command.command.text);
+        int commandIndent = indent.length();
+        indent.append(isLast ? SPACE : LINE);
+        for (int i = 0; i < command.parameters.size(); i++) {
+            ParameterNode parameter = command.parameters.get(i);
+            out.append(indent).append(i == command.parameters.size() - 1 ? LAST_BRANCH : BRANCH)
+                    .append("Parameter: ").append(parameter.parameter.text).append(' ').append(parameter.value.text).append('\n');
+        }
+        indent.setLength(commandIndent);
+    }
+
+    private void line(String text) throws IOException {
+        out.append(indent).append(text).append('\n');
+    }
+
+    private void line(String branch, String label, String text) throws IOException {
+        out.append(indent).append(branch).append(label).append(text).append('\n');
+    }
+
+    private void printJson(StatementNode statement) throws IOException {
+        out.append("{\"file\":");
+        jsonValue(statement.filePath);
+        out.append(",\"pipeline\":[");
+        if (statement.pipeline != null) {
+            for (int i = 0; i < statement.pipeline.commands.size(); i++) {
+                CommandNode command = statement.pipeline.commands.get(i);
+                if (i > 0) out.append(',');
+                out.append("{\"command\":");
+                jsonString(command.command.text, 0, command.command.text.length());
+                out.append(",\"parameters\":[");
+                for (int j = 0; j < command.parameters.size(); j++) {
+                    ParameterNode parameter = command.parameters.get(j);
+                    if (j > 0) out.append(',');
+                    out.append("{\"name\":");
+                    jsonString(parameter.parameter.text, 0, parameter.parameter.text.length());
+                    out.append(",\"value\":");
+                    jsonValue(parameter.value);
+                    out.append('}');
+                }
+                out.append("]}");
+            }
+        }
+        out.append("]}\n");
+    }
+
+    // a path without its quotes, or a number without leading zeros (which JSON does not allow)
+    private void jsonValue(Token token) throws IOException {
+        String text = token.text;
+        if (token.type != TokenType.NUMBER) {
+            jsonString(text, 1, text.length() - 1);
+            return;
+        }
+        int digits = text.charAt(0) == '-' ? 1 : 0;
+        int first = digits;
+        while (first < text.length() - 1 && text.charAt(first) == '0') first++;
+        if (digits == 1 && !(first == text.length() - 1 && text.charAt(first) == '0')) out.append('-');
+        out.append(text, first, text.length());
+    }
+
+    private void jsonString(String text, int from, int to) throws IOException {
+        out.append('"');
+        int start = from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c != '"' && c != '\\' && c >= ' ') continue;
+            out.append(text, start, i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        out.append(text, start, to).append('"');
+    }
+
+    // the text of a tree that is printed into a StringBuilder, which cannot fail
+    static String render(IOAction action) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            action.printTo(new TreePrinter(sb));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    interface IOAction {
+        void printTo(TreePrinter printer) throws IOException;
+    }
+}
@@ -0,0 +1,193 @@
+import java.math.BigInteger;
+import java.util.*;
+
+class CompiledAutomaton {
+    private final char[] alphabet;
+    private final SymbolClasses classes;
+    private final int classCount;
+    private final int[] transitions;
+    private final boolean[] finalStates;
+    private final int startState;
+    private final int stateCount;
+
+    CompiledAutomaton(SymbolClasses classes, int[] transitions, boolean[] finalStates, int startState) {
+        this.alphabet = classes.getAlphabet();
+        this.classes = classes;
+        this.classCount = classes.getClassCount();
+        this.transitions = transitions;
+        this.finalStates = finalStates;
+        this.startState = startState;
+        this.stateCount = finalStates.length;
+    }
+
+    public boolean accepts(CharSequence input) {
+        int state = startState;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            // class 0 (characters outside the alphabet) has no transitions
+            state = transitions[state * classCount + classes.classOf(input.charAt(i))];
+            if (state < 0) return false;
+        }
+        return finalStates[state];
+    }
+
+    public BitSet acceptsAll(List<? extends CharSequence> inputs) {
+        BitSet accepted = new BitSet(inputs.size());
+        int i = 0;
+        for (CharSequence input : inputs) {
+            if (accepts(input)) accepted.set(i);
+            i++;
+        }
+        return accepted;
+    }
+
+    public BigInteger countWords(int length) {
+        if (length < 0) throw new IllegalArgumentException("length must not be negative: " + length);
+        BigInteger[] counts = new BigInteger[stateCount];
+        Arrays.fill(counts, BigInteger.ZERO);
+        counts[startState] = BigInteger.ONE;
+
+        for (int step = 0; step < length; step++) {
+            BigInteger[] nextCounts = new BigInteger[stateCount];
+            Arrays.fill(nextCounts, BigInteger.ZERO);
+            for (int state = 0; state < stateCount; state++) {
+                if (counts[state].signum() == 0) continue;
+                for (int cls = 1; cls < classCount; cls++) {
+                    int target = transitions[state * classCount + cls];
+                    if (target >= 0) {
+                        nextCounts[target] = nextCounts[target].add(counts[state].multiply(BigInteger.valueOf(classes.classSize(cls))));
+                    }
+                }
+            }
+            counts = nextCounts;
+        }
+
+        BigInteger total = BigInteger.ZERO;
+        for (int state = 0; state < stateCount; state++) {
+            if (finalStates[state]) total = total.add(counts[state]);
+        }
+        return total;
+    }
+
+    public Iterator<String> words(int maxLength) {
+        return new ShortlexIterator(maxLength);
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getAlphabetSize() {
+        return alphabet.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    private class ShortlexIterator implements Iterator<String> {
+        private final int maxLength;
+        private final List<BitSet> canFinish = new ArrayList<>();
+        private int length;
+        private boolean exhausted;
+        private int[] path;
+        private int[] symbols;
+        private char[] word;
+        private int depth;
+        private String nextWord;
+
+        ShortlexIterator(int maxLength) {
+            this.maxLength = maxLength;
+            BitSet accepting = new BitSet(stateCount);
+            for (int state = 0; state < stateCount; state++) {
+                if (finalStates[state]) accepting.set(state);
+            }
+            canFinish.add(accepting);
+            startLength(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextWord == null) nextWord = advance();
+            return nextWord != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String result = nextWord;
+            nextWord = null;
+            return result;
+        }
+
+        private boolean startLength(int newLength) {
+            int emptyLengths = 0;
+            while (newLength >= 0 && newLength <= maxLength) {
+                BitSet remaining = finishSet(newLength);
+                if (remaining.get(startState)) {
+                    length = newLength;
+                    path = new int[length + 1];
+                    symbols = new int[length + 1];
+                    word = new char[length];
+                    path[0] = startState;
+                    symbols[0] = -1;
+                    depth = 0;
+                    return true;
+                }
+                // a word longer than the state count can be pumped down by at most stateCount
+                // symbols, so that many lengths without words means there are no longer ones
+                if (++emptyLengths > stateCount) break;
+                newLength++;
+            }
+            exhausted = true;
+            return false;
+        }
+
+        private BitSet finishSet(int steps) {
+            while (canFinish.size() <= steps) {
+                BitSet previous = canFinish.get(canFinish.size() - 1);
+                BitSet current = new BitSet(stateCount);
+                for (int state = 0; state < stateCount; state++) {
+                    for (int cls = 1; cls < classCount; cls++) {
+                        int target = transitions[state * classCount + cls];
+                        if (target >= 0 && previous.get(target)) {
+                            current.set(state);
+                            break;
+                        }
+                    }
+                }
+                canFinish.add(current);
+            }
+            return canFinish.get(steps);
+        }
+
+        private String advance() {
+            while (!exhausted) {
+                while (depth >= 0) {
+                    if (depth == length) {
+                        String result = new String(word);
+                        depth--;
+                        return result;
+                    }
+                    BitSet remaining = canFinish.get(length - depth - 1);
+                    int symbol = symbols[depth] + 1;
+                    int target = -1;
+                    for (; symbol < alphabet.length; symbol++) {
+                        target = transitions[path[depth] * classCount + classes.classOf(alphabet[symbol])];
+                        if (target >= 0 && remaining.get(target)) break;
+                    }
+                    if (symbol == alphabet.length) {
+                        depth--;
+                        continue;
+                    }
+                    symbols[depth] = symbol;
+                    word[depth] = alphabet[symbol];
+                    depth++;
+                    path[depth] = target;
+                    symbols[depth] = -1;
+                }
+                startLength(length + 1);
+            }
+            return null;
+        }
+    }
+}
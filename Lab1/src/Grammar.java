@@ -1,10 +1,14 @@
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 class Grammar {
     private Set<Character> VN;
     private Set<Character> VT;
     private Map<Character, List<String>> P;
     private char startSymbol;
+    private WordGenerator generator;
 
     public Grammar(Set<Character> VN, Set<Character> VT, Map<Character, List<String>> P, char startSymbol) {
         this.VN = VN;
@@ -14,27 +18,36 @@ class Grammar {
     }
 
     public String generateString() {
-        StringBuilder result = new StringBuilder();
-        char current = startSymbol;
-
-        while (VN.contains(current)) {
-            List<String> productions = P.get(current);
-            if (productions == null || productions.isEmpty()) break;
-            String selectedProduction = productions.get(new Random().nextInt(productions.size()));
-            result.append(selectedProduction.charAt(0));
-
-            if (selectedProduction.length() > 1)
-                current = selectedProduction.charAt(1);
-            else
-                break;
+        return generator().generate(ThreadLocalRandom.current());
+    }
+
+    public Stream<String> generate(long count, long seed) {
+        return generator().generate(count, seed, false);
+    }
+
+    public Stream<String> generate(long count, long seed, boolean distinct) {
+        return generator().generate(count, seed, distinct);
+    }
+
+    public Iterator<String> words(int maxLength) {
+        return toFiniteAutomaton().compile().words(maxLength);
+    }
+
+    public BigInteger countWords(int length) {
+        return toFiniteAutomaton().compile().countWords(length);
+    }
+
+    private WordGenerator generator() {
+        if (generator == null) {
+            generator = new WordGenerator(VN, P, startSymbol);
         }
-        return result.toString();
+        return generator;
     }
 
     public FiniteAutomaton toFiniteAutomaton() {
         Set<String> states = new HashSet<>();
         Set<Character> sigma = new HashSet<>(VT);
-        Map<String, Map<Character, String>> transitions = new HashMap<>();
+        Map<String, Map<Character, Set<String>>> transitions = new HashMap<>();
         String startState = String.valueOf(startSymbol);
         Set<String> finalStates = new HashSet<>();
 
@@ -47,7 +60,8 @@ class Grammar {
                 char terminal = production.charAt(0);
                 String toState = (production.length() > 1) ? String.valueOf(production.charAt(1)) : "FINAL";
 
-                transitions.get(fromState).put(terminal, toState);
+                // D -> dR and D -> d both read d, so a symbol can lead to several states
+                transitions.get(fromState).computeIfAbsent(terminal, t -> new HashSet<>()).add(toState);
                 states.add(toState);
                 if (!VN.contains(toState.charAt(0))) {
                     finalStates.add(toState);
@@ -63,11 +77,12 @@ class Grammar {
 class FiniteAutomaton {
     private Set<String> states;
     private Set<Character> sigma;
-    private Map<String, Map<Character, String>> transitions;
+    private Map<String, Map<Character, Set<String>>> transitions;
     private String startState;
     private Set<String> finalStates;
+    private CompiledAutomaton compiled;
 
-    public FiniteAutomaton(Set<String> states, Set<Character> sigma, Map<String, Map<Character, String>> transitions, String startState, Set<String> finalStates) {
+    public FiniteAutomaton(Set<String> states, Set<Character> sigma, Map<String, Map<Character, Set<String>>> transitions, String startState, Set<String> finalStates) {
         this.states = states;
         this.sigma = sigma;
         this.transitions = transitions;
@@ -75,14 +90,80 @@ class FiniteAutomaton {
         this.finalStates = finalStates;
     }
 
+    // runs on the determinized table, built on first use, so no sets of state names are made per character
     public boolean stringBelongToLanguage(String input) {
-        String currentState = startState;
+        if (compiled == null) {
+            compiled = compile();
+        }
+        return compiled.accepts(input);
+    }
+
+    private Set<String> step(Set<String> currentStates, char symbol) {
+        Set<String> nextStates = new HashSet<>();
+        for (String state : currentStates) {
+            Map<Character, Set<String>> stateTransitions = transitions.get(state);
+            if (stateTransitions != null && stateTransitions.containsKey(symbol))
+                nextStates.addAll(stateTransitions.get(symbol));
+        }
+        return nextStates;
+    }
+
+    public CompiledAutomaton compile() {
+        SortedSet<Character> symbols = new TreeSet<>(sigma);
+        for (Map<Character, Set<String>> stateTransitions : transitions.values()) {
+            symbols.addAll(stateTransitions.keySet());
+        }
+        char[] alphabet = new char[symbols.size()];
+        int i = 0;
+        for (char symbol : symbols) {
+            alphabet[i++] = symbol;
+        }
+        int k = alphabet.length;
+
+        // subset construction: a compiled state is the set of states some word leads to, numbered in BFS order
+        Map<Set<String>, Integer> subsetIds = new HashMap<>();
+        List<Set<String>> subsets = new ArrayList<>();
+        subsetIds.put(Set.of(startState), 0);
+        subsets.add(Set.of(startState));
+        int[] bySymbol = new int[Math.max(k, 1) * 16];
+        for (int subset = 0; subset < subsets.size(); subset++) {
+            if ((subset + 1) * k > bySymbol.length) bySymbol = Arrays.copyOf(bySymbol, bySymbol.length * 2);
+            for (int symbol = 0; symbol < k; symbol++) {
+                Set<String> target = step(subsets.get(subset), alphabet[symbol]);
+                if (target.isEmpty()) {
+                    bySymbol[subset * k + symbol] = -1;
+                    continue;
+                }
+                Integer id = subsetIds.get(target);
+                if (id == null) {
+                    id = subsets.size();
+                    subsetIds.put(target, id);
+                    subsets.add(target);
+                }
+                bySymbol[subset * k + symbol] = id;
+            }
+        }
+        int stateCount = subsets.size();
+        int[] columns = bySymbol;
 
-        for (char symbol : input.toCharArray()) {
-            if (!transitions.containsKey(currentState) || !transitions.get(currentState).containsKey(symbol))
-                return false;
-            currentState = transitions.get(currentState).get(symbol);
+        // symbols with identical columns share a class, so the table is states x classes
+        SymbolClasses classes = SymbolClasses.partition(alphabet, stateCount, (state, symbol) -> columns[state * k + symbol]);
+        int classCount = classes.getClassCount();
+        int[] table = new int[stateCount * classCount];
+        Arrays.fill(table, -1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < k; symbol++) {
+                table[state * classCount + classes.classOf(alphabet[symbol])] = bySymbol[state * k + symbol];
+            }
         }
-        return finalStates.contains(currentState);
+
+        boolean[] accepting = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (String member : subsets.get(state)) {
+                if (finalStates.contains(member)) accepting[state] = true;
+            }
+        }
+
+        return new CompiledAutomaton(classes, table, accepting, 0);
     }
 }
@@ -17,10 +17,27 @@ public class Main {
             System.out.println(grammar.generateString());
         }
 
+        long startTime = System.nanoTime();
+        long distinctWords = grammar.generate(1_000_000, 42L, true).count();
+        System.out.printf("%nGenerated 1000000 words (%d distinct) in %d ms%n",
+                distinctWords, (System.nanoTime() - startTime) / 1_000_000);
+
         FiniteAutomaton fa = grammar.toFiniteAutomaton();
         System.out.println("\nChecking if words belong to language:");
         System.out.println("abcd -> " + fa.stringBelongToLanguage("abcd"));
         System.out.println("ff -> " + fa.stringBelongToLanguage("ff"));
         System.out.println("ad -> " + fa.stringBelongToLanguage("ad"));
+
+        CompiledAutomaton compiled = fa.compile();
+        List<String> words = Arrays.asList("abcd", "ff", "ad", "bdf", "fbbf");
+        System.out.println("\nCompiled automaton (" + compiled.getStateCount() + " states, "
+                + compiled.getAlphabetSize() + " symbols in " + (compiled.getClassCount() - 1) + " classes) accepts: " + compiled.acceptsAll(words));
+
+        System.out.println("\nWords up to length 4 in shortlex order:");
+        Iterator<String> shortlex = grammar.words(4);
+        while (shortlex.hasNext()) {
+            System.out.print(shortlex.next() + " ");
+        }
+        System.out.println("\nWords of length 100: " + grammar.countWords(100));
     }
 }
@@ -0,0 +1,83 @@
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+
+class SymbolClasses {
+    private final char[] alphabet;
+    private final byte[] byteClasses;
+    private final char[] charClasses;
+    private final int classCount;
+    private final int[] classSizes;
+
+    private SymbolClasses(char[] alphabet, int[] symbolClasses, int classCount) {
+        this.alphabet = alphabet;
+        this.classCount = classCount;
+        this.classSizes = new int[classCount];
+        int size = alphabet.length == 0 ? 0 : alphabet[alphabet.length - 1] + 1;
+        // class ids fit in a byte for any realistic automaton; a char table covers the rest
+        this.byteClasses = classCount <= 256 ? new byte[size] : null;
+        this.charClasses = classCount <= 256 ? null : new char[size];
+        for (int i = 0; i < alphabet.length; i++) {
+            if (byteClasses != null) byteClasses[alphabet[i]] = (byte) symbolClasses[i];
+            else charClasses[alphabet[i]] = (char) symbolClasses[i];
+            classSizes[symbolClasses[i]]++;
+        }
+    }
+
+    // Partitions the sorted alphabet so that two symbols share a class exactly when
+    // target(state, symbol) agrees for every state. Class 0 holds every character outside the alphabet.
+    static SymbolClasses partition(char[] alphabet, int states, IntBinaryOperator target) {
+        int[] classes = new int[alphabet.length];
+        Arrays.fill(classes, 1);
+        int count = alphabet.length == 0 ? 1 : 2;
+        Map<Long, Integer> refined = new HashMap<>();
+        for (int state = 0; state < states && count <= alphabet.length; state++) {
+            refined.clear();
+            for (int symbol = 0; symbol < alphabet.length; symbol++) {
+                long key = ((long) classes[symbol] << 32) | (target.applyAsInt(state, symbol) & 0xFFFFFFFFL);
+                Integer id = refined.get(key);
+                if (id == null) {
+                    id = refined.size() + 1;
+                    refined.put(key, id);
+                }
+                classes[symbol] = id;
+            }
+            count = refined.size() + 1;
+        }
+        return new SymbolClasses(alphabet, classes, count);
+    }
+
+    public int classOf(char c) {
+        if (byteClasses != null) return c < byteClasses.length ? byteClasses[c] & 0xFF : 0;
+        return c < charClasses.length ? charClasses[c] : 0;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int classSize(int cls) {
+        return classSizes[cls];
+    }
+
+    public char[] getAlphabet() {
+        return alphabet;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int cls = 1; cls < classCount; cls++) {
+            if (cls > 1) sb.append(", ");
+            sb.append('{');
+            boolean first = true;
+            for (char symbol : alphabet) {
+                if (classOf(symbol) != cls) continue;
+                if (!first) sb.append(' ');
+                sb.append(symbol);
+                first = false;
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+class WordGenerator {
+    private static final int BLOCK_SIZE = 4096;
+
+    private final char[][] terminals;
+    private final int[][] next;
+    private final int start;
+
+    WordGenerator(Set<Character> VN, Map<Character, List<String>> P, char startSymbol) {
+        Map<Character, Integer> ids = new HashMap<>();
+        if (VN.contains(startSymbol)) ids.put(startSymbol, 0);
+        for (char nonTerminal : new TreeSet<>(VN)) {
+            ids.putIfAbsent(nonTerminal, ids.size());
+        }
+
+        terminals = new char[ids.size()][];
+        next = new int[ids.size()][];
+        for (var entry : ids.entrySet()) {
+            List<String> productions = P.getOrDefault(entry.getKey(), List.of());
+            char[] symbols = new char[productions.size()];
+            int[] targets = new int[productions.size()];
+            for (int i = 0; i < productions.size(); i++) {
+                String production = productions.get(i);
+                symbols[i] = production.charAt(0);
+                targets[i] = production.length() > 1 ? ids.getOrDefault(production.charAt(1), -1) : -1;
+            }
+            terminals[entry.getValue()] = symbols;
+            next[entry.getValue()] = targets;
+        }
+        start = VN.contains(startSymbol) ? 0 : -1;
+    }
+
+    public String generate(RandomGenerator random) {
+        return derive(random, new StringBuilder());
+    }
+
+    public Stream<String> generate(long count, long seed, boolean distinct) {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative: " + count);
+        long blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (blocks > Integer.MAX_VALUE) throw new IllegalArgumentException("count too large: " + count);
+
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] blockRandoms = new SplittableRandom[(int) blocks];
+        for (int i = 0; i < blockRandoms.length; i++) {
+            blockRandoms[i] = root.split();
+        }
+
+        Stream<String> words = LongStream.range(0, blocks).parallel().boxed().flatMap(block -> {
+            SplittableRandom random = blockRandoms[block.intValue()];
+            int size = (int) Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+            StringBuilder sb = new StringBuilder();
+            String[] generated = new String[size];
+            for (int i = 0; i < size; i++) {
+                generated[i] = derive(random, sb);
+            }
+            return Arrays.stream(generated);
+        });
+        return distinct ? words.distinct() : words;
+    }
+
+    private String derive(RandomGenerator random, StringBuilder sb) {
+        sb.setLength(0);
+        int current = start;
+        while (current >= 0) {
+            char[] symbols = terminals[current];
+            if (symbols.length == 0) break;
+            int choice = random.nextInt(symbols.length);
+            sb.append(symbols[choice]);
+            current = next[current][choice];
+        }
+        return sb.toString();
+    }
+}
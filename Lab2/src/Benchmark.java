@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+public class Benchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        benchmarkDeterminization();
+        benchmarkParallelDeterminization();
+        benchmarkSpillingDeterminization();
+        checkSpillingBudget();
+        benchmarkMinimization();
+        benchmarkLazyDeterminization();
+        benchmarkStreamingScan();
+        benchmarkBitParallel();
+        benchmarkSerialization();
+        benchmarkEquivalence();
+        benchmarkEpsilonClosures();
+    }
+
+    private static void benchmarkDeterminization() {
+        FiniteAutomaton nfa = keywordSearchNFA(new Random(3), 40, 10, "abcd");
+        System.out.println("Subset construction, " + nfa.indexed().getStateCount() + " NFA states -> "
+                + nfa.toDFA().getStateCount() + " DFA states");
+
+        long legacy = time(() -> legacyToDFA(nfa));
+        long bitset = time(() -> copyOf(nfa).toDFA());
+        report("  Set<Set<String>> construction", legacy);
+        report("  long[] bitset construction", bitset);
+        System.out.printf("  speedup: %.1fx%n", (double) legacy / bitset);
+    }
+
+    private static void benchmarkParallelDeterminization() {
+        FiniteAutomaton nfa = keywordSearchNFA(new Random(31), 4000, 12, "ab");
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Parallel subset construction, " + nfa.indexed().getStateCount() + " NFA states -> "
+                + nfa.toDFA().getStateCount() + " DFA states, " + cores + " cores");
+        report("  toDFA()", time(nfa::toDFA));
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            int parallelism = threads;
+            report("  toDFA(" + parallelism + ")", time(() -> nfa.toDFA(parallelism)));
+        }
+    }
+
+    private static void benchmarkSpillingDeterminization() throws IOException {
+        FiniteAutomaton nfa = keywordSearchNFA(new Random(37), 3000, 14, "ab");
+        Path file = Files.createTempFile("dfa-spill", ".bin");
+        try {
+            System.out.println("Out-of-core subset construction, " + nfa.indexed().getStateCount() + " NFA states");
+            report("  toDFA() on the heap", time(nfa::toDFA));
+            for (long budget : new long[]{64L << 20, 4L << 20, 1L << 20}) {
+                SpillStats stats = nfa.toDFAFile(file, budget, null);
+                report("  toDFAFile(), " + (budget >> 20) + " MiB budget", stats.getElapsedNanos());
+                System.out.println("    " + stats);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // (a|b)*a(a|b)^18 needs 2^19 DFA states, whose fingerprints and ids alone come to 6 MiB, so this fails unless
+    // the index spills along with the subsets. The heap in use is sampled after a collection at every progress
+    // report and may exceed the budget only by a little, and the DFA file is checked against the language.
+    private static void checkSpillingBudget() throws IOException {
+        int n = 18;
+        long budget = 1L << 20;
+        FiniteAutomaton nfa = nthFromEndNFA(n);
+        nfa.indexed();
+        Path file = Files.createTempFile("dfa-spill", ".bin");
+        try {
+            long baseline = usedHeap();
+            long[] peak = {0};
+            SpillStats stats = nfa.toDFAFile(file, budget, progress -> peak[0] = Math.max(peak[0], usedHeap() - baseline));
+            System.out.println("Out-of-core subset construction of (a|b)*a(a|b)^" + n + ", " + (budget >> 20) + " MiB budget");
+            report("  toDFAFile()", stats.getElapsedNanos());
+            System.out.println("    " + stats + ", peak heap " + (peak[0] >> 10) + " KiB");
+            if (stats.getStates() != 1 << (n + 1)) {
+                throw new IllegalStateException(stats.getStates() + " DFA states, expected " + (1 << (n + 1)));
+            }
+            if (peak[0] > budget + budget / 4) {
+                throw new IllegalStateException((peak[0] >> 10) + " KiB of heap in use on a " + (budget >> 10) + " KiB budget");
+            }
+            MappedDFA dfa = DFAFile.map(file);
+            Random random = new Random(41);
+            for (int i = 0; i < 10_000; i++) {
+                String word = randomText(random, random.nextInt(3 * n), "ab");
+                boolean expected = word.length() > n && word.charAt(word.length() - n - 1) == 'a';
+                if (dfa.accepts(word) != expected) throw new IllegalStateException("the DFA file gets " + word + " wrong");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void benchmarkMinimization() {
+        DFA dfa = keywordSearchNFA(new Random(5), 3000, 12, "ab").toDFA();
+        DFA minimal = dfa.minimize();
+        System.out.println("Hopcroft minimization, " + dfa.getStateCount() + " -> " + minimal.getStateCount() + " states");
+        report("  minimize()", time(dfa::minimize));
+    }
+
+    private static void benchmarkLazyDeterminization() {
+        // the full DFA of this NFA has 2^21 states
+        FiniteAutomaton nfa = nthFromEndNFA(20);
+        String sparse = randomText(new Random(7), 1_000_000, "abbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb");
+        String dense = randomText(new Random(7), 1_000_000, "ab");
+        System.out.println("Lazy determinization, " + nfa.indexed().getStateCount() + "-state NFA, 1M chars of input");
+
+        LazyDFA lazy = nfa.lazyMatcher(1 << 20);
+        report("  lazy DFA, mostly 'b' input", time(() -> lazy.accepts(sparse)));
+        System.out.println("    " + lazy);
+        LazyDFA thrashing = nfa.lazyMatcher(1 << 16);
+        report("  lazy DFA, uniform input", time(() -> thrashing.accepts(dense)));
+        System.out.println("    " + thrashing);
+    }
+
+    private static void benchmarkStreamingScan() throws IOException {
+        DFA dfa = nthFromEndNFA(6).toDFA().minimize();
+        Path file = Files.createTempFile("dfa-scan", ".txt");
+        try {
+            int megabytes = 64;
+            Files.writeString(file, randomText(new Random(11), megabytes << 20, "ab"), StandardCharsets.ISO_8859_1);
+            DFAMatcher matcher = dfa.matcher();
+            System.out.println("Streaming scan of a " + megabytes + " MiB file, " + dfa.getStateCount() + "-state DFA");
+            long mapped = time(() -> scanUnchecked(() -> matcher.scan(file, null)));
+            long reader = time(() -> scanUnchecked(() -> {
+                try (Reader in = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+                    return matcher.scan(in, null);
+                }
+            }));
+            report("  memory-mapped file", mapped);
+            System.out.printf("    %.0f MiB/s%n", megabytes / (mapped / 1e9));
+            report("  Reader", reader);
+            System.out.printf("    %.0f MiB/s%n", megabytes / (reader / 1e9));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void benchmarkBitParallel() {
+        FiniteAutomaton nfa = nthFromEndNFA(14);
+        String input = randomText(new Random(13), 1_000_000, "ab");
+        System.out.println("Bit-parallel simulation, " + nfa.indexed().getStateCount() + "-state NFA, 1M chars of input");
+
+        long determinize = time(() -> copyOf(nfa).toDFA());
+        DFA dfa = nfa.toDFA();
+        long dfaMatch = time(() -> dfa.accepts(input));
+        long bitParallel = time(() -> copyOf(nfa).accepts(input));
+        report("  toDFA() (" + dfa.getStateCount() + " states)", determinize);
+        report("  DFA.accepts()", dfaMatch);
+        report("  toDFA() + DFA.accepts()", determinize + dfaMatch);
+        report("  bit-parallel accepts(), including setup", bitParallel);
+    }
+
+    private static void benchmarkSerialization() throws IOException {
+        FiniteAutomaton nfa = keywordSearchNFA(new Random(17), 1000, 10, "abcdefgh");
+        DFA dfa = nfa.toDFA().minimize();
+        Path file = Files.createTempFile("dfa", ".bin");
+        try {
+            dfa.writeTo(file);
+            System.out.println("Startup of a " + dfa.getStateCount() + "-state DFA (" + (Files.size(file) >> 10) + " KiB file)");
+            report("  toDFA() + minimize() from the NFA", time(() -> copyOf(nfa).toDFA().minimize()));
+            report("  DFAFile.map()", time(() -> mapUnchecked(file)));
+            MappedDFA mapped = mapUnchecked(file);
+            String input = randomText(new Random(19), 1_000_000, "abcdefgh");
+            report("  scan 1M chars on the heap DFA", time(() -> dfa.matcher().scan(input)));
+            report("  scan 1M chars on the mapped DFA", time(() -> mapped.matcher().scan(input)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void benchmarkEquivalence() {
+        DFA dfa = randomDFA(new Random(23), 100_000, "abcd");
+        DFA minimal = dfa.minimize();
+        DFA changed = withFlippedFinal(dfa, new Random(29).nextInt(dfa.getStateCount()));
+        System.out.println("Equivalence of a " + dfa.getStateCount() + "-state DFA and its " + minimal.getStateCount() + "-state minimization");
+        report("  equivalentTo(), equivalent", time(() -> dfa.equivalentTo(minimal)));
+        report("  includedIn(), included", time(() -> minimal.includedIn(dfa)));
+        report("  equivalentTo(), one final state flipped", time(() -> dfa.equivalentTo(changed)));
+        System.out.println("    " + dfa.equivalentTo(changed));
+        report("  minimize() both and compare tables", time(() -> List.of(dfa.minimize(), changed.minimize())));
+    }
+
+    private static void benchmarkEpsilonClosures() {
+        FiniteAutomaton nfa = thompsonKeywordsNFA(new Random(41), 2000, 10, "abcd");
+        String input = randomText(new Random(43), 1_000_000, "abcd");
+        System.out.println("ε-NFA for (w1|...|w2000)*, " + nfa.getStates().size() + " states");
+        report("  ε-closures and indexing", time(() -> copyOf(nfa).indexed()));
+        report("  toDFA() (" + nfa.toDFA().getStateCount() + " states)", time(() -> copyOf(nfa).toDFA()));
+        report("  accepts() on 1M chars", time(() -> copyOf(nfa).accepts(input)));
+    }
+
+    // Thompson-style NFA for (w1|w2|...|wn)*: every keyword chain is entered and left through ε-moves
+    static FiniteAutomaton thompsonKeywordsNFA(Random random, int keywords, int length, String symbols) {
+        Set<String> states = new HashSet<>();
+        Set<Character> alphabet = new HashSet<>();
+        for (char symbol : symbols.toCharArray()) alphabet.add(symbol);
+        Map<String, Map<Character, Set<String>>> transitions = new HashMap<>();
+
+        states.add("s");
+        Set<String> entries = new HashSet<>();
+        transitions.put("s", new HashMap<>(Map.of(FiniteAutomaton.EPSILON, entries)));
+        for (int w = 0; w < keywords; w++) {
+            String previous = "k" + w + "_in";
+            states.add(previous);
+            entries.add(previous);
+            for (int i = 0; i < length; i++) {
+                String state = "k" + w + "_" + i;
+                states.add(state);
+                transitions.computeIfAbsent(previous, p -> new HashMap<>())
+                        .put(symbols.charAt(random.nextInt(symbols.length())), Set.of(state));
+                previous = state;
+            }
+            transitions.put(previous, Map.of(FiniteAutomaton.EPSILON, Set.of("s")));
+        }
+        return new FiniteAutomaton(states, alphabet, transitions, "s", Set.of("s"));
+    }
+
+    // a complete DFA with uniformly random transitions and about half of the states final
+    static DFA randomDFA(Random random, int states, String symbols) {
+        char[] alphabet = symbols.toCharArray();
+        int[] classes = new int[alphabet.length];
+        for (int i = 0; i < classes.length; i++) classes[i] = i + 1;
+        int k = alphabet.length + 1;
+        int[] table = new int[states * k];
+        boolean[] finalStates = new boolean[states];
+        for (int state = 0; state < states; state++) {
+            table[state * k] = -1;
+            for (int symbol = 1; symbol < k; symbol++) table[state * k + symbol] = random.nextInt(states);
+            finalStates[state] = random.nextBoolean();
+        }
+        return new DFA(SymbolClasses.of(alphabet, classes, k), table, finalStates, 0, state -> "r" + state);
+    }
+
+    static DFA withFlippedFinal(DFA dfa, int flipped) {
+        int k = dfa.getClassCount();
+        int[] table = new int[dfa.getStateCount() * k];
+        boolean[] finalStates = new boolean[dfa.getStateCount()];
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            for (int cls = 0; cls < k; cls++) table[state * k + cls] = dfa.transition(state, cls);
+            finalStates[state] = dfa.isFinal(state) != (state == flipped);
+        }
+        return new DFA(dfa.getSymbolClasses(), table, finalStates, dfa.getStartState(), dfa::getStateName);
+    }
+
+    static MappedDFA mapUnchecked(Path file) {
+        try {
+            return DFAFile.map(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    interface IOTask {
+        ScanResult run() throws IOException;
+    }
+
+    static ScanResult scanUnchecked(IOTask task) {
+        try {
+            return task.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // NFA for (a|b)*a(a|b)^n, whose subset construction needs 2^(n+1) states
+    static FiniteAutomaton nthFromEndNFA(int n) {
+        Set<String> states = new HashSet<>();
+        Map<String, Map<Character, Set<String>>> transitions = new HashMap<>();
+        states.add("p0");
+        transitions.put("p0", new HashMap<>(Map.of('a', new HashSet<>(Set.of("p0", "p1")), 'b', new HashSet<>(Set.of("p0")))));
+        for (int i = 1; i <= n; i++) {
+            String next = "p" + (i + 1);
+            states.add("p" + i);
+            transitions.put("p" + i, new HashMap<>(Map.of('a', Set.of(next), 'b', Set.of(next))));
+        }
+        states.add("p" + (n + 1));
+        return new FiniteAutomaton(states, new HashSet<>(List.of('a', 'b')), transitions, "p0", Set.of("p" + (n + 1)));
+    }
+
+    static String randomText(Random random, int length, String symbols) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(symbols.charAt(random.nextInt(symbols.length())));
+        return sb.toString();
+    }
+
+    // NFA for Σ*(w1|w2|...|wn): one chain of states per keyword hanging off a looping start state
+    static FiniteAutomaton keywordSearchNFA(Random random, int keywords, int length, String symbols) {
+        Set<String> states = new HashSet<>();
+        Set<Character> alphabet = new HashSet<>();
+        for (char symbol : symbols.toCharArray()) alphabet.add(symbol);
+        Map<String, Map<Character, Set<String>>> transitions = new HashMap<>();
+        Set<String> finalStates = new HashSet<>();
+
+        states.add("s");
+        Map<Character, Set<String>> startTransitions = new HashMap<>();
+        for (char symbol : alphabet) startTransitions.put(symbol, new HashSet<>(Set.of("s")));
+        transitions.put("s", startTransitions);
+
+        for (int w = 0; w < keywords; w++) {
+            String previous = "s";
+            for (int i = 0; i < length; i++) {
+                String state = "k" + w + "_" + i;
+                char symbol = symbols.charAt(random.nextInt(symbols.length()));
+                states.add(state);
+                transitions.computeIfAbsent(previous, s -> new HashMap<>())
+                        .computeIfAbsent(symbol, c -> new HashSet<>()).add(state);
+                previous = state;
+            }
+            finalStates.add(previous);
+        }
+        return new FiniteAutomaton(states, alphabet, transitions, "s", finalStates);
+    }
+
+    // a fresh automaton, so that interning the states is part of what gets measured
+    static FiniteAutomaton copyOf(FiniteAutomaton fa) {
+        return new FiniteAutomaton(fa.getStates(), fa.getAlphabet(), fa.getTransitions(), fa.getStartState(), fa.getFinalStates());
+    }
+
+    // The Set<Set<String>> subset construction toDFA() used before states were interned, kept as a baseline
+    static Object legacyToDFA(FiniteAutomaton nfa) {
+        Map<String, Map<Character, Set<String>>> transitions = nfa.getTransitions();
+        Set<Set<String>> dfaStates = new HashSet<>();
+        Map<Set<String>, Map<Character, Set<String>>> dfaTransitions = new HashMap<>();
+        Set<String> initialState = new HashSet<>(Collections.singleton(nfa.getStartState()));
+        dfaStates.add(initialState);
+
+        Queue<Set<String>> unmarkedStates = new LinkedList<>();
+        unmarkedStates.add(initialState);
+        while (!unmarkedStates.isEmpty()) {
+            Set<String> currentState = unmarkedStates.poll();
+            Map<Character, Set<String>> currentTransitions = new HashMap<>();
+            for (char symbol : nfa.getAlphabet()) {
+                Set<String> newState = new HashSet<>();
+                for (String state : currentState) {
+                    if (transitions.containsKey(state) && transitions.get(state).containsKey(symbol)) {
+                        newState.addAll(transitions.get(state).get(symbol));
+                    }
+                }
+                if (!newState.isEmpty()) {
+                    currentTransitions.put(symbol, newState);
+                    if (dfaStates.add(newState)) unmarkedStates.add(newState);
+                }
+            }
+            dfaTransitions.put(currentState, currentTransitions);
+        }
+        return dfaTransitions;
+    }
+
+    static long time(Supplier<?> task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) task.get();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static void report(String label, long nanos) {
+        System.out.printf("%-40s %10.3f ms%n", label, nanos / 1e6);
+    }
+}
@@ -0,0 +1,57 @@
+class BitParallelNFA {
+    static final int MAX_STATES = 64;
+
+    private final SymbolClasses classes;
+    // successors[(cls * 8 + b) * 256 + v]: union of the successors of the states in byte b of the active set when it equals v
+    private final long[] successors;
+    private final long startMask;
+    private final long finalMask;
+
+    BitParallelNFA(IndexedNFA nfa) {
+        if (nfa.getStateCount() > MAX_STATES) {
+            throw new IllegalArgumentException("Bit-parallel simulation supports at most " + MAX_STATES + " states, got " + nfa.getStateCount());
+        }
+        this.classes = nfa.getSymbolClasses();
+        this.successors = new long[nfa.getClassCount() * 8 * 256];
+        for (int cls = 0; cls < nfa.getClassCount(); cls++) {
+            long[] single = new long[MAX_STATES];
+            for (int state = 0; state < nfa.getStateCount(); state++) {
+                for (int target : nfa.successors(state, cls)) single[state] |= 1L << target;
+            }
+            for (int b = 0; b < 8; b++) {
+                int base = (cls * 8 + b) * 256;
+                for (int v = 1; v < 256; v++) {
+                    int low = Integer.numberOfTrailingZeros(v);
+                    successors[base + v] = successors[base + (v & (v - 1))] | single[b * 8 + low];
+                }
+            }
+        }
+
+        this.startMask = nfa.getStartSet()[0];
+        long finals = 0;
+        for (int state = 0; state < nfa.getStateCount(); state++) {
+            if (nfa.isFinal(state)) finals |= 1L << state;
+        }
+        this.finalMask = finals;
+    }
+
+    static boolean supports(IndexedNFA nfa) {
+        return nfa.getStateCount() <= MAX_STATES;
+    }
+
+    public boolean accepts(CharSequence input) {
+        long active = startMask;
+        for (int i = 0, n = input.length(); i < n && active != 0; i++) {
+            int base = classes.classOf(input.charAt(i)) << 11;
+            active = successors[base + (int) (active & 0xFF)]
+                    | successors[base + 256 + (int) ((active >>> 8) & 0xFF)]
+                    | successors[base + 512 + (int) ((active >>> 16) & 0xFF)]
+                    | successors[base + 768 + (int) ((active >>> 24) & 0xFF)]
+                    | successors[base + 1024 + (int) ((active >>> 32) & 0xFF)]
+                    | successors[base + 1280 + (int) ((active >>> 40) & 0xFF)]
+                    | successors[base + 1536 + (int) ((active >>> 48) & 0xFF)]
+                    | successors[base + 1792 + (int) (active >>> 56)];
+        }
+        return (active & finalMask) != 0;
+    }
+}
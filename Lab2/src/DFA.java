@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntFunction;
+
+class DFA implements DeterministicAutomaton {
+    private final SymbolClasses classes;
+    private final int classCount;
+    private final int[] transitions;
+    private final boolean[] finalStates;
+    private final int startState;
+    private final IntFunction<String> stateNames;
+
+    DFA(SymbolClasses classes, int[] transitions, boolean[] finalStates, int startState, IntFunction<String> stateNames) {
+        this.classes = classes;
+        this.classCount = classes.getClassCount();
+        this.transitions = transitions;
+        this.finalStates = finalStates;
+        this.startState = startState;
+        this.stateNames = stateNames;
+    }
+
+    @Override
+    public int getStateCount() {
+        return finalStates.length;
+    }
+
+    public SymbolClasses getSymbolClasses() {
+        return classes;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    @Override
+    public boolean isFinal(int state) {
+        return finalStates[state];
+    }
+
+    public int transition(int state, int cls) {
+        return transitions[state * classCount + cls];
+    }
+
+    // class 0 never has a transition, so characters outside the alphabet need no check of their own
+    @Override
+    public int step(int state, char c) {
+        return transitions[state * classCount + classes.classOf(c)];
+    }
+
+    @Override
+    public boolean accepts(CharSequence input) {
+        int state = startState;
+        for (int i = 0, n = input.length(); i < n && state >= 0; i++) {
+            state = step(state, input.charAt(i));
+        }
+        return state >= 0 && finalStates[state];
+    }
+
+    public void writeTo(Path file) throws IOException {
+        DFAFile.write(this, file);
+    }
+
+    public String getStateName(int state) {
+        return stateNames.apply(state);
+    }
+
+    public DFA minimize() {
+        return Minimizer.minimize(this);
+    }
+
+    public DFAComparison equivalentTo(DFA other) {
+        return DFAComparison.equivalence(this, other);
+    }
+
+    public DFAComparison includedIn(DFA other) {
+        return DFAComparison.inclusion(this, other);
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner states = new StringJoiner(", ", "[", "]");
+        StringJoiner finals = new StringJoiner(", ", "[", "]");
+        for (int state = 0; state < getStateCount(); state++) {
+            states.add(getStateName(state));
+            if (finalStates[state]) finals.add(getStateName(state));
+        }
+
+        StringBuilder sb = new StringBuilder("Converted DFA:\n");
+        sb.append("  States: ").append(states).append("\n");
+        sb.append("  Alphabet: ").append(Arrays.toString(classes.getAlphabet())).append("\n");
+        sb.append("  Start State: ").append(getStateName(startState)).append("\n");
+        sb.append("  Final States: ").append(finals).append("\n");
+        sb.append("  Transitions:\n");
+
+        for (int state = 0; state < getStateCount(); state++) {
+            for (char symbol : classes.getAlphabet()) {
+                int target = step(state, symbol);
+                if (target < 0) continue;
+                sb.append("    ").append(getStateName(state)).append(" --").append(symbol).append("--> ").append(getStateName(target)).append("\n");
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.*;
+
+class DFAComparison {
+    private final boolean holds;
+    private final String counterexample;
+
+    private DFAComparison(boolean holds, String counterexample) {
+        this.holds = holds;
+        this.counterexample = counterexample;
+    }
+
+    public boolean holds() {
+        return holds;
+    }
+
+    // the shortest word on which the check fails (alphabetically first among those), or null if it holds
+    public String getCounterexample() {
+        return counterexample;
+    }
+
+    @Override
+    public String toString() {
+        return holds ? "holds" : "fails on \"" + counterexample + "\"";
+    }
+
+    static DFAComparison equivalence(DFA a, DFA b) {
+        Product product = new Product(a, b);
+        if (hopcroftKarp(product.left(), product.right(), product.symbolCount())) return new DFAComparison(true, null);
+        return new DFAComparison(false, product.shortestWord(false));
+    }
+
+    // L(a) is included in L(b) exactly when the union of a and b is equivalent to b
+    static DFAComparison inclusion(DFA a, DFA b) {
+        Product product = new Product(a, b);
+        if (hopcroftKarp(product.union(), product.right(), product.symbolCount())) return new DFAComparison(true, null);
+        return new DFAComparison(false, product.shortestWord(true));
+    }
+
+    // Hopcroft-Karp: pairs of states that must be equivalent are merged with union-find, and a pair of
+    // successors is only explored if they are not already in one class, so every queued pair joins two classes
+    private static boolean hopcroftKarp(Side x, Side y, int symbols) {
+        UnionFind classes = new UnionFind();
+        long[] queue = new long[32];
+        int head = 0;
+        int tail = 0;
+
+        long x0 = x.start();
+        long y0 = y.start();
+        classes.union(x0 << 1, y0 << 1 | 1);
+        queue[tail++] = x0;
+        queue[tail++] = y0;
+
+        while (head < tail) {
+            long p = queue[head++];
+            long q = queue[head++];
+            if (x.accepts(p) != y.accepts(q)) return false;
+            for (int symbol = 0; symbol < symbols; symbol++) {
+                long p2 = x.step(p, symbol);
+                long q2 = y.step(q, symbol);
+                if (!classes.union(p2 << 1, q2 << 1 | 1)) continue;
+                if (tail == queue.length) queue = Arrays.copyOf(queue, queue.length * 2);
+                queue[tail++] = p2;
+                queue[tail++] = q2;
+            }
+        }
+        return true;
+    }
+
+    // one side of the comparison; states are longs so that product states need no objects
+    interface Side {
+        long start();
+
+        boolean accepts(long state);
+
+        long step(long state, int symbol);
+    }
+
+    // lazily explored product of two DFAs over the characters of both alphabets,
+    // grouped into the symbols that neither automaton can tell apart
+    private static class Product {
+        private final DFA a;
+        private final DFA b;
+        private final int deadA;
+        private final int deadB;
+        private final int[] classA;
+        private final int[] classB;
+        private final char[] representatives;
+
+        Product(DFA a, DFA b) {
+            this.a = a;
+            this.b = b;
+            // a missing transition leads to a dead state numbered after the real ones
+            this.deadA = a.getStateCount();
+            this.deadB = b.getStateCount();
+
+            SortedSet<Character> chars = new TreeSet<>();
+            for (char c : a.getSymbolClasses().getAlphabet()) chars.add(c);
+            for (char c : b.getSymbolClasses().getAlphabet()) chars.add(c);
+            Map<Long, Character> symbols = new LinkedHashMap<>();
+            for (char c : chars) {
+                long pair = (long) a.getSymbolClasses().classOf(c) << 32 | b.getSymbolClasses().classOf(c);
+                symbols.putIfAbsent(pair, c);
+            }
+
+            this.classA = new int[symbols.size()];
+            this.classB = new int[symbols.size()];
+            this.representatives = new char[symbols.size()];
+            int symbol = 0;
+            for (var entry : symbols.entrySet()) {
+                classA[symbol] = (int) (entry.getKey() >>> 32);
+                classB[symbol] = entry.getKey().intValue();
+                representatives[symbol++] = entry.getValue();
+            }
+        }
+
+        int symbolCount() {
+            return representatives.length;
+        }
+
+        private int stepA(int p, int symbol) {
+            if (p == deadA) return deadA;
+            int next = a.transition(p, classA[symbol]);
+            return next < 0 ? deadA : next;
+        }
+
+        private int stepB(int q, int symbol) {
+            if (q == deadB) return deadB;
+            int next = b.transition(q, classB[symbol]);
+            return next < 0 ? deadB : next;
+        }
+
+        private boolean finalA(int p) {
+            return p != deadA && a.isFinal(p);
+        }
+
+        private boolean finalB(int q) {
+            return q != deadB && b.isFinal(q);
+        }
+
+        private long pair(int p, int q) {
+            return (long) p * (deadB + 1) + q;
+        }
+
+        Side left() {
+            return new Side() {
+                public long start() {
+                    return a.getStartState();
+                }
+
+                public boolean accepts(long state) {
+                    return finalA((int) state);
+                }
+
+                public long step(long state, int symbol) {
+                    return stepA((int) state, symbol);
+                }
+            };
+        }
+
+        Side right() {
+            return new Side() {
+                public long start() {
+                    return b.getStartState();
+                }
+
+                public boolean accepts(long state) {
+                    return finalB((int) state);
+                }
+
+                public long step(long state, int symbol) {
+                    return stepB((int) state, symbol);
+                }
+            };
+        }
+
+        // the product automaton accepting L(a) ∪ L(b)
+        Side union() {
+            int width = deadB + 1;
+            return new Side() {
+                public long start() {
+                    return pair(a.getStartState(), b.getStartState());
+                }
+
+                public boolean accepts(long state) {
+                    return finalA((int) (state / width)) || finalB((int) (state % width));
+                }
+
+                public long step(long state, int symbol) {
+                    return pair(stepA((int) (state / width), symbol), stepB((int) (state % width), symbol));
+                }
+            };
+        }
+
+        // Breadth-first search of the product for a pair the check fails on: one where the DFAs disagree,
+        // or, for inclusion, where only a accepts. Symbols are tried in character order, so the first
+        // failing pair is reached by the shortest word and, among those, the alphabetically first.
+        String shortestWord(boolean inclusion) {
+            int width = deadB + 1;
+            LongIntMap visited = new LongIntMap();
+            int[] parent = new int[16];
+            char[] via = new char[16];
+            long[] pairs = new long[16];
+            pairs[visited.intern(pair(a.getStartState(), b.getStartState()))] = pair(a.getStartState(), b.getStartState());
+            parent[0] = -1;
+
+            for (int head = 0; head < visited.size(); head++) {
+                int p = (int) (pairs[head] / width);
+                int q = (int) (pairs[head] % width);
+                boolean failed = inclusion ? finalA(p) && !finalB(q) : finalA(p) != finalB(q);
+                if (failed) {
+                    StringBuilder word = new StringBuilder();
+                    for (int node = head; parent[node] >= 0; node = parent[node]) word.append(via[node]);
+                    return word.reverse().toString();
+                }
+                for (int symbol = 0; symbol < representatives.length; symbol++) {
+                    long next = pair(stepA(p, symbol), stepB(q, symbol));
+                    int known = visited.size();
+                    int id = visited.intern(next);
+                    if (id < known) continue;
+                    if (id == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, id * 2);
+                        parent = Arrays.copyOf(parent, id * 2);
+                        via = Arrays.copyOf(via, id * 2);
+                    }
+                    pairs[id] = next;
+                    parent[id] = head;
+                    via[id] = representatives[symbol];
+                }
+            }
+            throw new IllegalStateException("the product has no failing pair");
+        }
+    }
+
+    private static class UnionFind {
+        private final LongIntMap ids = new LongIntMap();
+        private int[] parent = new int[16];
+
+        // merges the classes of two keys and returns false if they were already one class
+        boolean union(long x, long y) {
+            int rx = find(id(x));
+            int ry = find(id(y));
+            if (rx == ry) return false;
+            parent[rx] = ry;
+            return true;
+        }
+
+        private int id(long key) {
+            int known = ids.size();
+            int id = ids.intern(key);
+            if (id == known) {
+                if (id == parent.length) parent = Arrays.copyOf(parent, id * 2);
+                parent[id] = id;
+            }
+            return id;
+        }
+
+        private int find(int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+    }
+
+    // open-addressing map from long keys to dense ids in insertion order
+    private static class LongIntMap {
+        private long[] keys = new long[32];
+        private int[] slots = new int[32];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int intern(long key) {
+            int mask = slots.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+                    keys[size] = key;
+                    slots[slot] = ++size;
+                    if (size * 2 > slots.length) rehash();
+                    return size - 1;
+                }
+                if (keys[entry - 1] == key) return entry - 1;
+            }
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hash(keys[id]) & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = id + 1;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Binary layout of a compiled DFA, little-endian throughout:
+//   int magic, int version, int stateCount, int classCount, int startState, int alphabetLength
+//   char[alphabetLength] alphabet (sorted), char[alphabetLength] class of each alphabet symbol
+//   int[stateCount * classCount] transitions (-1 for none), 8-byte aligned
+//   long[(stateCount + 63) / 64] final-state bitset, 8-byte aligned
+class DFAFile {
+    static final int MAGIC = 0x41464443; // "CDFA"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int WINDOW_SHIFT = 28;
+    static final long WINDOW_BYTES = 4L << WINDOW_SHIFT;
+
+    private DFAFile() {
+    }
+
+    static void write(DFA dfa, Path file) throws IOException {
+        SymbolClasses classes = dfa.getSymbolClasses();
+        int stateCount = dfa.getStateCount();
+        int classCount = dfa.getClassCount();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(classes, stateCount, dfa.getStartState()));
+
+            int rowBytes = 4 * classCount;
+            ByteBuffer rows = ByteBuffer.allocate(Math.max(1, (1 << 16) / rowBytes) * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (int state = 0; state < stateCount; state++) {
+                if (rows.remaining() < rowBytes) {
+                    rows.flip();
+                    writeFully(channel, rows);
+                    rows.clear();
+                }
+                for (int cls = 0; cls < classCount; cls++) rows.putInt(dfa.transition(state, cls));
+            }
+            rows.flip();
+            writeFully(channel, rows);
+
+            channel.position(finalsOffset(classes.getAlphabet().length, stateCount, classCount));
+            long[] finals = new long[(stateCount + 63) >>> 6];
+            for (int state = 0; state < stateCount; state++) {
+                if (dfa.isFinal(state)) finals[state >>> 6] |= 1L << state;
+            }
+            writeFully(channel, finals(finals));
+        }
+    }
+
+    // Checks the header, alphabet and size, so that a MappedDFA never indexes outside its table; the transitions
+    // themselves are checked as MappedDFA reads them, which keeps mapping independent of the table size. The
+    // table is mapped in windows of WINDOW_BYTES, since a single mapping cannot exceed 2 GiB and a spilled DFA can.
+    static MappedDFA map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a compiled DFA file");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported DFA file version " + version + " in " + file + ", expected " + VERSION);
+            }
+            int stateCount = header.getInt(8);
+            int classCount = header.getInt(12);
+            int startState = header.getInt(16);
+            int alphabetLength = header.getInt(20);
+            if (stateCount < 1 || classCount < 1 || startState < 0 || startState >= stateCount
+                    || alphabetLength < 0 || alphabetLength > Character.MAX_VALUE + 1) {
+                throw new IOException("Corrupt DFA file " + file + ": " + stateCount + " states, " + classCount
+                        + " classes, start state " + startState + ", " + alphabetLength + " symbols");
+            }
+            long expected = finalsOffset(alphabetLength, stateCount, classCount) + 8L * ((stateCount + 63) >>> 6);
+            if (size != expected) {
+                throw new IOException("Truncated DFA file " + file + ": " + size + " bytes, expected " + expected);
+            }
+
+            ByteBuffer symbols = ByteBuffer.allocate(4 * alphabetLength).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, symbols, HEADER_BYTES);
+            char[] alphabet = new char[alphabetLength];
+            int[] symbolClasses = new int[alphabetLength];
+            for (int i = 0; i < alphabetLength; i++) {
+                alphabet[i] = symbols.getChar(2 * i);
+                symbolClasses[i] = symbols.getChar(2 * (alphabetLength + i));
+                if (i > 0 && alphabet[i] <= alphabet[i - 1]) {
+                    throw new IOException("Corrupt DFA file " + file + ": alphabet is not sorted at symbol " + i);
+                }
+                if (symbolClasses[i] >= classCount) {
+                    throw new IOException("Corrupt DFA file " + file + ": symbol " + i + " has class " + symbolClasses[i]
+                            + " of " + classCount);
+                }
+            }
+            SymbolClasses classes = SymbolClasses.of(alphabet, symbolClasses, classCount);
+
+            long tableOffset = tableOffset(alphabetLength);
+            long tableBytes = 4L * stateCount * classCount;
+            IntBuffer[] windows = new IntBuffer[(int) ((tableBytes + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+            for (int w = 0; w < windows.length; w++) {
+                long from = (long) w * WINDOW_BYTES;
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset + from, Math.min(WINDOW_BYTES, tableBytes - from))
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            long finalsOffset = finalsOffset(alphabetLength, stateCount, classCount);
+            LongBuffer finals = channel.map(FileChannel.MapMode.READ_ONLY, finalsOffset, size - finalsOffset)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            return new MappedDFA(file, classes, stateCount, startState, windows, finals);
+        }
+    }
+
+    static ByteBuffer header(SymbolClasses classes, int stateCount, int startState) {
+        char[] alphabet = classes.getAlphabet();
+        ByteBuffer header = ByteBuffer.allocate((int) tableOffset(alphabet.length)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(stateCount).putInt(classes.getClassCount()).putInt(startState)
+                .putInt(alphabet.length);
+        for (char symbol : alphabet) header.putChar(symbol);
+        for (char symbol : alphabet) header.putChar((char) classes.classOf(symbol));
+        header.position(header.capacity());
+        return header.flip();
+    }
+
+    static ByteBuffer finals(long[] finals) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 * finals.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (long word : finals) buffer.putLong(word);
+        return buffer.flip();
+    }
+
+    static long tableOffset(int alphabetLength) {
+        return align8(HEADER_BYTES + 4L * alphabetLength);
+    }
+
+    static long finalsOffset(int alphabetLength, int stateCount, int classCount) {
+        return align8(tableOffset(alphabetLength) + 4L * stateCount * classCount);
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    // fills buffer from position, stopping early only at the end of the file
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) break;
+            position += read;
+        }
+    }
+
+    private static long align8(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
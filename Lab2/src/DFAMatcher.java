@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+class DFAMatcher {
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private final DeterministicAutomaton dfa;
+    private final char[] buffer = new char[READ_BUFFER_SIZE];
+    private final byte[] bytes = new byte[READ_BUFFER_SIZE];
+
+    private int state;
+    private long offset;
+    private long longestMatch;
+    private LongConsumer matchEnds;
+
+    DFAMatcher(DeterministicAutomaton dfa) {
+        this.dfa = dfa;
+    }
+
+    public ScanResult scan(CharSequence input) {
+        return scan(input, null);
+    }
+
+    public ScanResult scan(CharSequence input, LongConsumer matchEnds) {
+        begin(matchEnds);
+        for (int from = 0, n = input.length(); from < n && state >= 0; from += buffer.length) {
+            int to = Math.min(n, from + buffer.length);
+            for (int i = from; i < to; i++) buffer[i - from] = input.charAt(i);
+            feed(buffer, to - from);
+        }
+        return finish();
+    }
+
+    public ScanResult scan(CharBuffer input, LongConsumer matchEnds) {
+        begin(matchEnds);
+        CharBuffer view = input.duplicate();
+        while (view.hasRemaining() && state >= 0) {
+            int count = Math.min(buffer.length, view.remaining());
+            view.get(buffer, 0, count);
+            feed(buffer, count);
+        }
+        return finish();
+    }
+
+    public ScanResult scan(Reader reader, LongConsumer matchEnds) throws IOException {
+        begin(matchEnds);
+        int read;
+        while (state >= 0 && (read = reader.read(buffer)) > 0) {
+            feed(buffer, read);
+        }
+        return finish();
+    }
+
+    // each byte of the file is one ISO-8859-1 character; the file is mapped in windows of up to 1 GiB
+    public ScanResult scan(Path file, LongConsumer matchEnds) throws IOException {
+        begin(matchEnds);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size && state >= 0; position += MAX_MAPPING) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPING, size - position));
+                while (mapped.hasRemaining() && state >= 0) {
+                    int count = Math.min(bytes.length, mapped.remaining());
+                    mapped.get(bytes, 0, count);
+                    for (int i = 0; i < count; i++) buffer[i] = (char) (bytes[i] & 0xFF);
+                    feed(buffer, count);
+                }
+            }
+        }
+        return finish();
+    }
+
+    private void begin(LongConsumer matchEnds) {
+        this.matchEnds = matchEnds;
+        state = dfa.getStartState();
+        offset = 0;
+        longestMatch = -1;
+        if (dfa.isFinal(state)) matched(0);
+    }
+
+    // runs a chunk through the DFA with the hot state in locals; stops at the first dead state
+    private void feed(char[] chars, int count) {
+        int current = state;
+        long base = offset;
+        int i = 0;
+        if (matchEnds == null) {
+            int lastMatch = -1;
+            while (i < count) {
+                current = dfa.step(current, chars[i++]);
+                if (current < 0) break;
+                lastMatch = dfa.isFinal(current) ? i : lastMatch;
+            }
+            if (lastMatch >= 0) longestMatch = base + lastMatch;
+        } else {
+            while (i < count) {
+                current = dfa.step(current, chars[i++]);
+                if (current < 0) break;
+                if (dfa.isFinal(current)) matched(base + i);
+            }
+        }
+        state = current;
+        offset = base + i;
+    }
+
+    private void matched(long end) {
+        longestMatch = end;
+        if (matchEnds != null) matchEnds.accept(end);
+    }
+
+    private ScanResult finish() {
+        boolean accepted = state >= 0 && dfa.isFinal(state);
+        matchEnds = null;
+        return new ScanResult(accepted, longestMatch, offset);
+    }
+}
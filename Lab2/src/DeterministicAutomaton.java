@@ -0,0 +1,22 @@
+interface DeterministicAutomaton {
+    int getStateCount();
+
+    int getStartState();
+
+    boolean isFinal(int state);
+
+    // the state reached from state on c, or -1 when c leads nowhere
+    int step(int state, char c);
+
+    default boolean accepts(CharSequence input) {
+        int state = getStartState();
+        for (int i = 0, n = input.length(); i < n && state >= 0; i++) {
+            state = step(state, input.charAt(i));
+        }
+        return state >= 0 && isFinal(state);
+    }
+
+    default DFAMatcher matcher() {
+        return new DFAMatcher(this);
+    }
+}
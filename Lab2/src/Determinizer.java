@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+class Determinizer {
+    private Determinizer() {
+    }
+
+    static DFA determinize(IndexedNFA nfa) {
+        int words = nfa.getWords();
+        int k = nfa.getClassCount();
+        SubsetTable subsets = new SubsetTable(words);
+        subsets.intern(nfa.getStartSet());
+
+        int[] table = new int[16 * Math.max(1, k)];
+        boolean[] finals = new boolean[16];
+        long[] current = new long[words];
+        long[] next = new long[words];
+
+        // subsets are numbered in discovery order, so the table itself is the BFS worklist
+        for (int id = 0; id < subsets.size(); id++) {
+            if ((id + 1) * k > table.length) table = Arrays.copyOf(table, table.length * 2);
+            if (id == finals.length) finals = Arrays.copyOf(finals, finals.length * 2);
+
+            subsets.copy(id, current);
+            finals[id] = nfa.containsFinal(current);
+            for (int cls = 0; cls < k; cls++) {
+                nfa.step(current, cls, next);
+                table[id * k + cls] = IndexedNFA.isEmpty(next) ? -1 : subsets.intern(next);
+            }
+        }
+
+        return build(nfa, subsets, table, finals);
+    }
+
+    // the DFA over the first subsets.size() rows of table, naming each state after its subset
+    static DFA build(IndexedNFA nfa, SubsetTable subsets, int[] table, boolean[] finals) {
+        int words = nfa.getWords();
+        int k = nfa.getClassCount();
+        int stateCount = subsets.size();
+        return new DFA(nfa.getSymbolClasses(), Arrays.copyOf(table, stateCount * k), Arrays.copyOf(finals, stateCount), 0,
+                state -> {
+                    long[] subset = new long[words];
+                    subsets.copy(state, subset);
+                    return nfa.describe(subset);
+                });
+    }
+}
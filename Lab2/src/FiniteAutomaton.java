@@ -1,10 +1,22 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+
 class FiniteAutomaton {
+    // transitions on this symbol are ε-moves. U+FFFF is a noncharacter, so no text needs it as a symbol and
+    // every other char, Greek ε included, stays a symbol; an alphabet containing it is rejected
+    public static final char EPSILON = '\uFFFF';
+    private static final long DEFAULT_CACHE_BYTES = 1L << 20;
+
     private Set<String> states;
     private Set<Character> alphabet;
     private Map<String, Map<Character, Set<String>>> transitions;
     private String startState;
     private Set<String> finalStates;
+    private IndexedNFA indexed;
+    private BitParallelNFA bitParallel;
+    private LazyDFA matcher;
 
     public FiniteAutomaton(Set<String> states, Set<Character> alphabet, Map<String, Map<Character, Set<String>>> transitions, String startState, Set<String> finalStates) {
         this.states = states;
@@ -14,10 +26,31 @@ class FiniteAutomaton {
         this.finalStates = finalStates;
     }
 
+    public Set<String> getStates() {
+        return states;
+    }
+
+    public Set<Character> getAlphabet() {
+        return alphabet;
+    }
+
+    public Map<String, Map<Character, Set<String>>> getTransitions() {
+        return transitions;
+    }
+
+    public String getStartState() {
+        return startState;
+    }
+
+    public Set<String> getFinalStates() {
+        return finalStates;
+    }
+
     public boolean isDeterministic() {
         for (Map<Character, Set<String>> stateTransitions : transitions.values()) {
-            for (Set<String> destStates : stateTransitions.values()) {
-                if (destStates.size() > 1) {
+            for (var entry : stateTransitions.entrySet()) {
+                Set<String> destStates = entry.getValue();
+                if (destStates.size() > 1 || entry.getKey() == EPSILON && !destStates.isEmpty()) {
                     return false;
                 }
             }
@@ -26,85 +59,44 @@ class FiniteAutomaton {
     }
 
     public DFA toDFA() {
-        Set<Set<String>> dfaStates = new HashSet<>();
-        Map<Set<String>, Map<Character, Set<String>>> dfaTransitions = new HashMap<>();
-        Set<Set<String>> dfaFinalStates = new HashSet<>();
-
-        Set<String> initialState = new HashSet<>(Collections.singleton(startState));
-        dfaStates.add(initialState);
-
-        if (!Collections.disjoint(initialState, finalStates)) {
-            dfaFinalStates.add(initialState);
-        }
-
-        Queue<Set<String>> unmarkedStates = new LinkedList<>();
-        unmarkedStates.add(initialState);
-
-        while (!unmarkedStates.isEmpty()) {
-            Set<String> currentState = unmarkedStates.poll();
-            Map<Character, Set<String>> currentTransitions = new HashMap<>();
+        return Determinizer.determinize(indexed());
+    }
 
-            for (char symbol : alphabet) {
-                Set<String> newState = new HashSet<>();
+    // the same DFA as toDFA(), state numbering included, built by up to parallelism threads
+    public DFA toDFA(int parallelism) {
+        return ParallelDeterminizer.determinize(indexed(), parallelism);
+    }
 
-                for (String state : currentState) {
-                    if (transitions.containsKey(state) && transitions.get(state).containsKey(symbol)) {
-                        newState.addAll(transitions.get(state).get(symbol));
-                    }
-                }
+    // Determinizes within roughly memoryBudgetBytes of heap, spilling older subsets and their index to temp files,
+    // and writes the DFA to file in the DFAFile format; progress receives statistics as the construction runs
+    public SpillStats toDFAFile(Path file, long memoryBudgetBytes, Consumer<SpillStats> progress) throws IOException {
+        return SpillingDeterminizer.determinize(indexed(), file, memoryBudgetBytes, progress);
+    }
 
-                if (!newState.isEmpty()) {
-                    currentTransitions.put(symbol, newState);
-                    if (!dfaStates.contains(newState)) {
-                        dfaStates.add(newState);
-                        unmarkedStates.add(newState);
-                        if (!Collections.disjoint(newState, finalStates)) {
-                            dfaFinalStates.add(newState);
-                        }
-                    }
-                }
+    // small automata are simulated bit-parallel without ever determinizing; larger ones go through a lazy DFA
+    public boolean accepts(CharSequence input) {
+        if (bitParallel == null && matcher == null) {
+            if (BitParallelNFA.supports(indexed())) {
+                bitParallel = new BitParallelNFA(indexed());
+            } else {
+                matcher = lazyMatcher(DEFAULT_CACHE_BYTES);
             }
-            dfaTransitions.put(currentState, currentTransitions);
         }
-
-        return new DFA(dfaStates, alphabet, dfaTransitions, initialState, dfaFinalStates);
+        return bitParallel != null ? bitParallel.accepts(input) : matcher.accepts(input);
     }
 
-    public String getGrammarType() {
-        return "Regular Grammar (Type-3)";
+    public LazyDFA lazyMatcher(long memoryBudgetBytes) {
+        return new LazyDFA(indexed(), memoryBudgetBytes);
     }
-}
-
-class DFA {
-    private Set<Set<String>> states;
-    private Set<Character> alphabet;
-    private Map<Set<String>, Map<Character, Set<String>>> transitions;
-    private Set<String> startState;
-    private Set<Set<String>> finalStates;
 
-    public DFA(Set<Set<String>> states, Set<Character> alphabet, Map<Set<String>, Map<Character, Set<String>>> transitions, Set<String> startState, Set<Set<String>> finalStates) {
-        this.states = states;
-        this.alphabet = alphabet;
-        this.transitions = transitions;
-        this.startState = startState;
-        this.finalStates = finalStates;
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder("Converted DFA:\n");
-        sb.append("  States: ").append(states).append("\n");
-        sb.append("  Alphabet: ").append(alphabet).append("\n");
-        sb.append("  Start State: ").append(startState).append("\n");
-        sb.append("  Final States: ").append(finalStates).append("\n");
-        sb.append("  Transitions:\n");
-
-        for (var entry : transitions.entrySet()) {
-            for (var trans : entry.getValue().entrySet()) {
-                sb.append("    ").append(entry.getKey()).append(" --").append(trans.getKey()).append("--> ").append(trans.getValue()).append("\n");
-            }
+    IndexedNFA indexed() {
+        if (indexed == null) {
+            indexed = new IndexedNFA(states, alphabet, transitions, startState, finalStates);
         }
+        return indexed;
+    }
 
-        return sb.toString();
+    public String getGrammarType() {
+        return "Regular Grammar (Type-3)";
     }
 }
@@ -0,0 +1,253 @@
+import java.util.*;
+
+class IndexedNFA {
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final String[] stateNames;
+    private final SymbolClasses classes;
+    private final int classCount;
+    private final int[][] successors;
+    private final long[] startSet;
+    private final long[] finalSet;
+    private final int words;
+
+    IndexedNFA(Set<String> states, Set<Character> alphabet, Map<String, Map<Character, Set<String>>> transitions,
+               String startState, Set<String> finalStates) {
+        SortedSet<String> allStates = new TreeSet<>(states);
+        allStates.add(startState);
+        allStates.addAll(finalStates);
+        for (var entry : transitions.entrySet()) {
+            allStates.add(entry.getKey());
+            for (Set<String> targets : entry.getValue().values()) allStates.addAll(targets);
+        }
+
+        this.stateNames = allStates.toArray(new String[0]);
+        Map<String, Integer> ids = new HashMap<>();
+        for (String state : stateNames) ids.put(state, ids.size());
+
+        if (alphabet.contains(FiniteAutomaton.EPSILON)) {
+            throw new IllegalArgumentException("\\uFFFF marks ε-moves and cannot be an input symbol");
+        }
+        SortedSet<Character> symbols = new TreeSet<>(alphabet);
+        char[] sortedAlphabet = new char[symbols.size()];
+        int index = 0;
+        for (char symbol : symbols) sortedAlphabet[index++] = symbol;
+
+        int k = sortedAlphabet.length;
+        int[][] bySymbol = new int[stateNames.length * k][];
+        Arrays.fill(bySymbol, NO_TARGETS);
+        int[][] epsilon = new int[stateNames.length][];
+        Arrays.fill(epsilon, NO_TARGETS);
+        boolean hasEpsilon = false;
+        for (var entry : transitions.entrySet()) {
+            int from = ids.get(entry.getKey());
+            for (var trans : entry.getValue().entrySet()) {
+                int symbol = trans.getKey() == FiniteAutomaton.EPSILON ? -1 : Arrays.binarySearch(sortedAlphabet, trans.getKey());
+                if (trans.getValue().isEmpty() || symbol < 0 && trans.getKey() != FiniteAutomaton.EPSILON) continue;
+                int[] targets = new int[trans.getValue().size()];
+                int i = 0;
+                for (String target : trans.getValue()) targets[i++] = ids.get(target);
+                Arrays.sort(targets);
+                if (symbol >= 0) {
+                    bySymbol[from * k + symbol] = targets;
+                } else {
+                    epsilon[from] = targets;
+                    hasEpsilon = true;
+                }
+            }
+        }
+
+        this.words = Math.max(1, (stateNames.length + 63) >>> 6);
+        this.startSet = new long[words];
+        set(startSet, ids.get(startState));
+
+        // ε-moves are folded away: the start set and every successor list are replaced by their ε-closures,
+        // so subsets stay closed and nothing downstream ever follows an ε-move
+        if (hasEpsilon) {
+            long[][] closures = epsilonClosures(epsilon, words);
+            long[] closed = new long[words];
+            for (int i = 0; i < bySymbol.length; i++) {
+                if (bySymbol[i].length > 0) bySymbol[i] = close(bySymbol[i], closures, closed);
+            }
+            System.arraycopy(closures[ids.get(startState)], 0, startSet, 0, words);
+        }
+
+        // symbols that lead every state to the same successors share one column from here on
+        Map<List<Integer>, Integer> targetIds = new HashMap<>();
+        this.classes = SymbolClasses.partition(sortedAlphabet, stateNames.length, (state, symbol) -> {
+            int[] targets = bySymbol[state * k + symbol];
+            List<Integer> key = new ArrayList<>(targets.length);
+            for (int target : targets) key.add(target);
+            return targetIds.computeIfAbsent(key, t -> targetIds.size());
+        });
+        this.classCount = classes.getClassCount();
+        this.successors = new int[stateNames.length * classCount][];
+        Arrays.fill(successors, NO_TARGETS);
+        for (int state = 0; state < stateNames.length; state++) {
+            for (int symbol = 0; symbol < k; symbol++) {
+                successors[state * classCount + classes.classOf(sortedAlphabet[symbol])] = bySymbol[state * k + symbol];
+            }
+        }
+
+        this.finalSet = new long[words];
+        for (String state : finalStates) set(finalSet, ids.get(state));
+    }
+
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    public SymbolClasses getSymbolClasses() {
+        return classes;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    public long[] getStartSet() {
+        return startSet;
+    }
+
+    public int[] successors(int state, int cls) {
+        return successors[state * classCount + cls];
+    }
+
+    public boolean isFinal(int state) {
+        return (finalSet[state >>> 6] & (1L << state)) != 0;
+    }
+
+    public boolean containsFinal(long[] set) {
+        for (int i = 0; i < words; i++) {
+            if ((set[i] & finalSet[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    public void step(long[] from, int cls, long[] to) {
+        Arrays.fill(to, 0L);
+        for (int i = 0; i < words; i++) {
+            long bits = from[i];
+            while (bits != 0) {
+                int state = (i << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int target : successors[state * classCount + cls]) {
+                    to[target >>> 6] |= 1L << target;
+                }
+            }
+        }
+    }
+
+    public String describe(long[] set) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < words; i++) {
+            long bits = set[i];
+            while (bits != 0) {
+                joiner.add(stateNames[(i << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return joiner.toString();
+    }
+
+    static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    // Tarjan's algorithm without recursion. Components are completed in reverse topological order, so the
+    // closure of a component is its own states plus the already complete closures of the components it reaches;
+    // all states of a component share one closure bitset.
+    private static long[][] epsilonClosures(int[][] epsilon, int words) {
+        int n = epsilon.length;
+        long[][] closures = new long[n][];
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] low = new int[n];
+        int[] nextEdge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] path = new int[n];
+        int stackSize = 0;
+        int counter = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            int depth = 0;
+            path[depth++] = root;
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                int state = path[depth - 1];
+                if (nextEdge[state] < epsilon[state].length) {
+                    int target = epsilon[state][nextEdge[state]++];
+                    if (index[target] < 0) {
+                        index[target] = low[target] = counter++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        path[depth++] = target;
+                    } else if (onStack[target]) {
+                        low[state] = Math.min(low[state], index[target]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) low[path[depth - 1]] = Math.min(low[path[depth - 1]], low[state]);
+                if (low[state] != index[state]) continue;
+
+                int first = stackSize;
+                do {
+                    onStack[stack[--first]] = false;
+                } while (stack[first] != state);
+                long[] closure = new long[words];
+                for (int i = first; i < stackSize; i++) {
+                    set(closure, stack[i]);
+                    for (int target : epsilon[stack[i]]) {
+                        // targets without a closure yet belong to this component
+                        if (closures[target] == null) continue;
+                        for (int w = 0; w < words; w++) closure[w] |= closures[target][w];
+                    }
+                }
+                for (int i = first; i < stackSize; i++) closures[stack[i]] = closure;
+                stackSize = first;
+            }
+        }
+        return closures;
+    }
+
+    private static int[] close(int[] targets, long[][] closures, long[] closed) {
+        Arrays.fill(closed, 0L);
+        int count = 0;
+        for (int target : targets) {
+            for (int w = 0; w < closed.length; w++) closed[w] |= closures[target][w];
+        }
+        for (long word : closed) count += Long.bitCount(word);
+        int[] result = new int[count];
+        int i = 0;
+        for (int w = 0; w < closed.length; w++) {
+            long bits = closed[w];
+            while (bits != 0) {
+                result[i++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    private static void set(long[] set, int state) {
+        set[state >>> 6] |= 1L << state;
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+class LazyDFA {
+    private static final int UNKNOWN = -2;
+    private static final int MIN_STATES = 8;
+    // after a few resets within one match, a cache that fills up again in less than this many
+    // characters per cached state is thrashing, and stepping the NFA directly is cheaper
+    private static final int MIN_CHARS_PER_STATE = 10;
+    private static final int MAX_RESETS_BEFORE_FALLBACK = 3;
+
+    private final IndexedNFA nfa;
+    private final int k;
+    private final int words;
+    private final int maxStates;
+    // MIN_CHARS_PER_STATE * maxStates, in long since it can exceed Integer.MAX_VALUE
+    private final long thrashChars;
+    private final SubsetTable subsets;
+    private final int[] transitions;
+    private final boolean[] finalStates;
+    private final long[] current;
+    private final long[] next;
+
+    private long cacheHits;
+    private long cacheMisses;
+    private long evictions;
+    private long cacheResets;
+    private long fallbacks;
+
+    LazyDFA(IndexedNFA nfa, long memoryBudgetBytes) {
+        this.nfa = nfa;
+        this.k = nfa.getClassCount();
+        this.words = nfa.getWords();
+        long bytesPerState = 8L * words + 4L * k + 16;
+        this.maxStates = (int) Math.max(MIN_STATES, Math.min(Integer.MAX_VALUE / Math.max(1, k), memoryBudgetBytes / bytesPerState));
+        this.thrashChars = (long) MIN_CHARS_PER_STATE * maxStates;
+        this.subsets = new SubsetTable(words);
+        this.transitions = new int[maxStates * k];
+        this.finalStates = new boolean[maxStates];
+        this.current = new long[words];
+        this.next = new long[words];
+    }
+
+    public boolean accepts(CharSequence input) {
+        SymbolClasses classes = nfa.getSymbolClasses();
+        long resetsAtStart = cacheResets;
+        int charsSinceReset = 0;
+        int state = startState();
+
+        for (int i = 0, n = input.length(); i < n; i++) {
+            int cls = classes.classOf(input.charAt(i));
+
+            int target = transitions[state * k + cls];
+            if (target == UNKNOWN) {
+                cacheMisses++;
+                subsets.copy(state, current);
+                nfa.step(current, cls, next);
+                if (IndexedNFA.isEmpty(next)) {
+                    target = -1;
+                } else {
+                    target = subsets.find(next);
+                    if (target < 0) {
+                        if (subsets.size() == maxStates) {
+                            if (cacheResets - resetsAtStart >= MAX_RESETS_BEFORE_FALLBACK
+                                    && charsSinceReset < thrashChars) {
+                                fallbacks++;
+                                return simulate(input, i + 1);
+                            }
+                            reset();
+                            charsSinceReset = 0;
+                            // keep the source state so the new transition can still be cached
+                            state = add(current);
+                        }
+                        target = add(next);
+                    }
+                }
+                transitions[state * k + cls] = target;
+            } else {
+                cacheHits++;
+            }
+            if (target < 0) return false;
+            state = target;
+            charsSinceReset++;
+        }
+        return finalStates[state];
+    }
+
+    private int startState() {
+        int start = subsets.find(nfa.getStartSet());
+        if (start >= 0) return start;
+        if (subsets.size() == maxStates) reset();
+        return add(nfa.getStartSet());
+    }
+
+    private int add(long[] subset) {
+        int id = subsets.intern(subset);
+        Arrays.fill(transitions, id * k, (id + 1) * k, UNKNOWN);
+        finalStates[id] = nfa.containsFinal(subset);
+        return id;
+    }
+
+    private void reset() {
+        evictions += subsets.size();
+        cacheResets++;
+        subsets.clear();
+    }
+
+    // continue from the subset in next, stepping the NFA bitsets without caching anything
+    private boolean simulate(CharSequence input, int from) {
+        SymbolClasses classes = nfa.getSymbolClasses();
+        long[] active = Arrays.copyOf(next, words);
+        long[] stepped = new long[words];
+        for (int i = from, n = input.length(); i < n; i++) {
+            int cls = classes.classOf(input.charAt(i));
+            nfa.step(active, cls, stepped);
+            if (IndexedNFA.isEmpty(stepped)) return false;
+            long[] swap = active;
+            active = stepped;
+            stepped = swap;
+        }
+        return nfa.containsFinal(active);
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    public int getCachedStates() {
+        return subsets.size();
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getCacheResets() {
+        return cacheResets;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDFA{cached=" + subsets.size() + "/" + maxStates + ", hits=" + cacheHits + ", misses=" + cacheMisses
+                + ", evictions=" + evictions + ", resets=" + cacheResets + ", fallbacks=" + fallbacks + "}";
+    }
+}
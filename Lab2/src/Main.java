@@ -1,7 +1,11 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Set<String> states = new HashSet<>(Arrays.asList("q0", "q1", "q2", "q3", "q4"));
         Set<Character> alphabet = new HashSet<>(Arrays.asList('a', 'b'));
 
@@ -21,6 +25,36 @@ public class Main {
         DFA dfa = fa.toDFA();
         System.out.println("\n" + dfa);
 
+        DFA minimal = dfa.minimize();
+        System.out.println("Minimization: " + dfa.getStateCount() + " states before, " + minimal.getStateCount() + " after");
+        System.out.println("Minimal DFA equivalent to the original: " + minimal.equivalentTo(dfa));
+        DFA withoutLoop = new FiniteAutomaton(states, alphabet, Map.of("q0", Map.of('a', Set.of("q1")), "q1", Map.of('a', Set.of("q2")),
+                "q2", Map.of('b', Set.of("q3")), "q3", Map.of('b', Set.of("q4"))), startState, finalStates).toDFA();
+        System.out.println("L(aabb) included in L(variant): " + withoutLoop.includedIn(dfa) + ", converse: " + dfa.includedIn(withoutLoop));
+
+        List<Long> matchEnds = new ArrayList<>();
+        ScanResult scan = minimal.matcher().scan(new StringReader("aabbabbbab"), matchEnds::add);
+        System.out.println("Scanning \"aabbabbbab\": " + scan + ", accepted prefixes end at " + matchEnds + "\n");
+
+        Path compiled = Files.createTempFile("variant3", ".dfa");
+        minimal.writeTo(compiled);
+        MappedDFA mapped = DFAFile.map(compiled);
+        System.out.println("Reloaded " + Files.size(compiled) + "-byte DFA file: aabb -> " + mapped.accepts("aabb") + ", ab -> " + mapped.accepts("ab"));
+        Files.delete(compiled);
+
+        LazyDFA lazy = fa.lazyMatcher(64 * 1024);
+        for (String word : List.of("aabb", "abaabbb", "aab", "ba")) {
+            System.out.println(word + " -> lazy " + lazy.accepts(word) + ", bit-parallel " + fa.accepts(word));
+        }
+        System.out.println(lazy);
+
+        // a*b* with the two loops joined by an ε-move
+        FiniteAutomaton epsilonNFA = new FiniteAutomaton(Set.of("e0", "e1"), alphabet,
+                Map.of("e0", Map.of('a', Set.of("e0"), FiniteAutomaton.EPSILON, Set.of("e1")), "e1", Map.of('b', Set.of("e1"))),
+                "e0", Set.of("e1"));
+        System.out.println("\nε-NFA for a*b* is " + (epsilonNFA.isDeterministic() ? "DFA" : "NDFA") + ", its DFA has "
+                + epsilonNFA.toDFA().getStateCount() + " states; aabbb -> " + epsilonNFA.accepts("aabbb") + ", aba -> " + epsilonNFA.accepts("aba"));
+
         System.out.println("\nGrammar Classification: " + fa.getGrammarType());
     }
 }
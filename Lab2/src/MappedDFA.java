@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+
+class MappedDFA implements DeterministicAutomaton {
+    private final Path file;
+    private final SymbolClasses classes;
+    private final int classCount;
+    private final int stateCount;
+    private final int startState;
+    private final IntBuffer[] transitions;
+    // the only window when the table is below WINDOW_BYTES, the common case, or null
+    private final IntBuffer table;
+    private final LongBuffer finalStates;
+
+    MappedDFA(Path file, SymbolClasses classes, int stateCount, int startState, IntBuffer[] transitions, LongBuffer finalStates) {
+        this.file = file;
+        this.classes = classes;
+        this.classCount = classes.getClassCount();
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.transitions = transitions;
+        this.table = transitions.length == 1 ? transitions[0] : null;
+        this.finalStates = finalStates;
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    @Override
+    public boolean isFinal(int state) {
+        return (finalStates.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    // the table is split into windows of 2^WINDOW_SHIFT entries, see DFAFile.map(); entries are checked here,
+    // as they are read, instead of all of them when the file is mapped
+    @Override
+    public int step(int state, char c) {
+        int target;
+        if (table != null) {
+            target = table.get(state * classCount + classes.classOf(c));
+        } else {
+            long index = (long) state * classCount + classes.classOf(c);
+            target = transitions[(int) (index >>> DFAFile.WINDOW_SHIFT)].get((int) index & ((1 << DFAFile.WINDOW_SHIFT) - 1));
+        }
+        if (target < -1 || target >= stateCount) {
+            throw new UncheckedIOException(new IOException("Corrupt DFA file " + file + ": transition to state " + target
+                    + " of " + stateCount));
+        }
+        return target;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public SymbolClasses getSymbolClasses() {
+        return classes;
+    }
+}
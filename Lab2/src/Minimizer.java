@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+class Minimizer {
+    private final DFA dfa;
+    private final int k;
+    private final int n;
+    private final int sink;
+
+    private final int[] elements;
+    private final int[] location;
+    private final int[] blockOf;
+    private final int[] blockFirst;
+    private final int[] blockEnd;
+    private final int[] marked;
+    private int blocks;
+
+    private Minimizer(DFA dfa) {
+        this.dfa = dfa;
+        this.k = dfa.getClassCount();
+        int states = dfa.getStateCount();
+        // missing transitions go to an explicit sink so that the automaton is complete
+        this.sink = states;
+        this.n = states + 1;
+        this.elements = new int[n];
+        this.location = new int[n];
+        this.blockOf = new int[n];
+        this.blockFirst = new int[n];
+        this.blockEnd = new int[n];
+        this.marked = new int[n];
+    }
+
+    static DFA minimize(DFA dfa) {
+        return new Minimizer(dfa).run();
+    }
+
+    private int target(int state, int symbol) {
+        if (state == sink) return sink;
+        int target = dfa.transition(state, symbol);
+        return target < 0 ? sink : target;
+    }
+
+    private DFA run() {
+        int[] inverseStart = new int[k * (n + 1) + 1];
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < k; symbol++) {
+                inverseStart[symbol * (n + 1) + target(state, symbol) + 1]++;
+            }
+        }
+        for (int i = 1; i < inverseStart.length; i++) inverseStart[i] += inverseStart[i - 1];
+        int[] inverse = new int[n * k];
+        int[] fill = Arrays.copyOf(inverseStart, inverseStart.length);
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < k; symbol++) {
+                inverse[fill[symbol * (n + 1) + target(state, symbol)]++] = state;
+            }
+        }
+
+        int finals = 0;
+        for (int state = 0; state < n; state++) {
+            if (state != sink && dfa.isFinal(state)) elements[finals++] = state;
+        }
+        int nonFinals = finals;
+        for (int state = 0; state < n; state++) {
+            if (state == sink || !dfa.isFinal(state)) elements[nonFinals++] = state;
+        }
+        for (int i = 0; i < n; i++) location[elements[i]] = i;
+        if (finals > 0) addBlock(0, finals);
+        if (finals < n) addBlock(finals, n);
+
+        boolean[] pending = new boolean[n * k];
+        int[] worklist = new int[n * k];
+        int worklistSize = 0;
+        int initial = blocks == 2 && blockEnd[0] - blockFirst[0] > blockEnd[1] - blockFirst[1] ? 1 : 0;
+        for (int symbol = 0; symbol < k; symbol++) {
+            worklist[worklistSize++] = initial * k + symbol;
+            pending[initial * k + symbol] = true;
+        }
+
+        int[] predecessors = new int[n];
+        int[] touched = new int[n];
+        while (worklistSize > 0) {
+            int splitter = worklist[--worklistSize];
+            pending[splitter] = false;
+            int block = splitter / k;
+            int symbol = splitter % k;
+
+            int predecessorCount = 0;
+            for (int i = blockFirst[block]; i < blockEnd[block]; i++) {
+                int base = symbol * (n + 1) + elements[i];
+                for (int j = inverseStart[base]; j < inverseStart[base + 1]; j++) {
+                    predecessors[predecessorCount++] = inverse[j];
+                }
+            }
+
+            int touchedCount = 0;
+            for (int i = 0; i < predecessorCount; i++) {
+                int state = predecessors[i];
+                int b = blockOf[state];
+                int markEnd = blockFirst[b] + marked[b];
+                if (location[state] < markEnd) continue;
+                if (marked[b] == 0) touched[touchedCount++] = b;
+                swap(location[state], markEnd);
+                marked[b]++;
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int b = touched[i];
+                int size = blockEnd[b] - blockFirst[b];
+                if (marked[b] == size) {
+                    marked[b] = 0;
+                    continue;
+                }
+                int split = blockFirst[b] + marked[b];
+                int created = addBlock(blockFirst[b], split);
+                blockFirst[b] = split;
+                marked[b] = 0;
+
+                int smaller = split - blockFirst[created] <= blockEnd[b] - split ? created : b;
+                for (int a = 0; a < k; a++) {
+                    int candidate = pending[b * k + a] ? created : smaller;
+                    if (!pending[candidate * k + a]) {
+                        pending[candidate * k + a] = true;
+                        worklist[worklistSize++] = candidate * k + a;
+                    }
+                }
+            }
+        }
+
+        return build();
+    }
+
+    private int addBlock(int first, int end) {
+        int block = blocks++;
+        blockFirst[block] = first;
+        blockEnd[block] = end;
+        for (int i = first; i < end; i++) blockOf[elements[i]] = block;
+        return block;
+    }
+
+    private void swap(int i, int j) {
+        int a = elements[i];
+        int b = elements[j];
+        elements[i] = b;
+        elements[j] = a;
+        location[b] = i;
+        location[a] = j;
+    }
+
+    private DFA build() {
+        // number the surviving blocks in BFS order from the start block, dropping the dead (sink) block
+        int deadBlock = blockOf[sink];
+        int[] newId = new int[blocks];
+        Arrays.fill(newId, -1);
+        int[] order = new int[blocks];
+        int count = 0;
+        int startBlock = blockOf[dfa.getStartState()];
+        if (startBlock != deadBlock) {
+            newId[startBlock] = count;
+            order[count++] = startBlock;
+        }
+        for (int head = 0; head < count; head++) {
+            int representative = elements[blockFirst[order[head]]];
+            for (int symbol = 0; symbol < k; symbol++) {
+                int next = blockOf[target(representative, symbol)];
+                if (next != deadBlock && newId[next] < 0) {
+                    newId[next] = count;
+                    order[count++] = next;
+                }
+            }
+        }
+
+        if (count == 0) {
+            int[] empty = new int[k];
+            Arrays.fill(empty, -1);
+            return new DFA(dfa.getSymbolClasses(), empty, new boolean[1], 0, state -> "[]");
+        }
+
+        int[] table = new int[count * k];
+        boolean[] accepting = new boolean[count];
+        for (int state = 0; state < count; state++) {
+            int representative = elements[blockFirst[order[state]]];
+            accepting[state] = dfa.isFinal(representative);
+            for (int symbol = 0; symbol < k; symbol++) {
+                int next = blockOf[target(representative, symbol)];
+                table[state * k + symbol] = next == deadBlock ? -1 : newId[next];
+            }
+        }
+
+        return new DFA(dfa.getSymbolClasses(), table, accepting, 0, state -> {
+            int block = order[state];
+            if (blockEnd[block] - blockFirst[block] == 1) return dfa.getStateName(elements[blockFirst[block]]);
+            StringJoiner members = new StringJoiner(", ", "{", "}");
+            for (int i = blockFirst[block]; i < blockEnd[block]; i++) members.add(dfa.getStateName(elements[i]));
+            return members.toString();
+        });
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Subset construction one BFS level at a time: the successors of a level are computed in parallel against
+// the (then read-only) subset table, and new subsets are interned afterwards in the order the sequential
+// BFS would meet them, so state numbering does not depend on the thread count or on scheduling.
+class ParallelDeterminizer {
+    // frontier states expanded by one task before it stops splitting
+    private static final int LEAF_STATES = 16;
+
+    private final IndexedNFA nfa;
+    private final int words;
+    private final int k;
+    private final SubsetTable subsets;
+    private int[] table;
+    private boolean[] finals;
+    private long[][] discovered;
+    private int levelStart;
+
+    private ParallelDeterminizer(IndexedNFA nfa) {
+        this.nfa = nfa;
+        this.words = nfa.getWords();
+        this.k = nfa.getClassCount();
+        this.subsets = new SubsetTable(words);
+        this.table = new int[16 * Math.max(1, k)];
+        this.finals = new boolean[16];
+    }
+
+    static DFA determinize(IndexedNFA nfa, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new ParallelDeterminizer(nfa).run(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private DFA run(ForkJoinPool pool) {
+        subsets.intern(nfa.getStartSet());
+        while (levelStart < subsets.size()) {
+            int levelEnd = subsets.size();
+            if (levelEnd * k > table.length) table = Arrays.copyOf(table, Math.max(table.length * 2, levelEnd * k));
+            if (levelEnd > finals.length) finals = Arrays.copyOf(finals, Math.max(finals.length * 2, levelEnd));
+            discovered = new long[(levelEnd - levelStart) * k][];
+
+            pool.invoke(new Expand(levelStart, levelEnd));
+
+            for (int id = levelStart; id < levelEnd; id++) {
+                for (int cls = 0; cls < k; cls++) {
+                    long[] subset = discovered[(id - levelStart) * k + cls];
+                    if (subset != null) table[id * k + cls] = subsets.intern(subset);
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return Determinizer.build(nfa, subsets, table, finals);
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private class Expand extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Expand(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_STATES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(from, middle), new Expand(middle, to));
+                return;
+            }
+            long[] current = new long[words];
+            long[] next = new long[words];
+            for (int id = from; id < to; id++) {
+                subsets.copy(id, current);
+                finals[id] = nfa.containsFinal(current);
+                for (int cls = 0; cls < k; cls++) {
+                    nfa.step(current, cls, next);
+                    int target = IndexedNFA.isEmpty(next) ? -1 : subsets.find(next);
+                    table[id * k + cls] = target;
+                    // subsets not seen on earlier levels are interned once the whole level is done
+                    if (target < 0 && !IndexedNFA.isEmpty(next)) {
+                        discovered[(id - levelStart) * k + cls] = next;
+                        next = new long[words];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+class ScanResult {
+    private final boolean accepted;
+    private final long longestMatch;
+    private final long charsScanned;
+
+    ScanResult(boolean accepted, long longestMatch, long charsScanned) {
+        this.accepted = accepted;
+        this.longestMatch = longestMatch;
+        this.charsScanned = charsScanned;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    // length of the longest accepted prefix, or -1 if no prefix (not even the empty one) is accepted
+    public long getLongestMatch() {
+        return longestMatch;
+    }
+
+    // characters consumed before the input ended or the automaton reached a dead state
+    public long getCharsScanned() {
+        return charsScanned;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult{accepted=" + accepted + ", longestMatch=" + longestMatch + ", charsScanned=" + charsScanned + "}";
+    }
+}
@@ -0,0 +1,81 @@
+class SpillStats {
+    private final int states;
+    private final int expanded;
+    private final int residentSubsets;
+    private final int spilledSubsets;
+    private final long spillBytes;
+    private final long diskReads;
+    private final long indexBytes;
+    private final int indexRuns;
+    private final long indexRunBytes;
+    private final long outputBytes;
+    private final long elapsedNanos;
+
+    SpillStats(int states, int expanded, int residentSubsets, int spilledSubsets, long spillBytes, long diskReads,
+               long indexBytes, int indexRuns, long indexRunBytes, long outputBytes, long elapsedNanos) {
+        this.states = states;
+        this.expanded = expanded;
+        this.residentSubsets = residentSubsets;
+        this.spilledSubsets = spilledSubsets;
+        this.spillBytes = spillBytes;
+        this.diskReads = diskReads;
+        this.indexBytes = indexBytes;
+        this.indexRuns = indexRuns;
+        this.indexRunBytes = indexRunBytes;
+        this.outputBytes = outputBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getStates() {
+        return states;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+
+    public int getResidentSubsets() {
+        return residentSubsets;
+    }
+
+    public int getSpilledSubsets() {
+        return spilledSubsets;
+    }
+
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+
+    public long getDiskReads() {
+        return diskReads;
+    }
+
+    public long getIndexBytes() {
+        return indexBytes;
+    }
+
+    public int getIndexRuns() {
+        return indexRuns;
+    }
+
+    public long getIndexRunBytes() {
+        return indexRunBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SpillStats{states=" + states + ", expanded=" + expanded + ", resident=" + residentSubsets
+                + ", spilled=" + spilledSubsets + " (" + (spillBytes >> 10) + " KiB), diskReads=" + diskReads
+                + ", index=" + (indexBytes >> 10) + " KiB + " + indexRuns + " runs (" + (indexRunBytes >> 10)
+                + " KiB), output=" + (outputBytes >> 10) + " KiB, "
+                + elapsedNanos / 1_000_000 + " ms}";
+    }
+}
@@ -0,0 +1,427 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Subset construction under a memory budget, written straight into the DFAFile format. Only the most
+// recently discovered subsets stay on the heap; older ones are spilled to a temp file at fixed offsets
+// (id * subset size) and read back when the BFS reaches them or when a lookup has to confirm a match.
+// Subsets are found by 64-bit fingerprint: recent ones through a fixed-size hash table, older ones through
+// runs of (fingerprint, id) records sorted on disk, which the table is written out as whenever it fills
+// and which are merged into one when there are more than MAX_RUNS. Finished transition rows and the
+// final-state bits go to files as well, so nothing on the heap grows with the number of states; the
+// output header is completed once the state count is known.
+class SpillingDeterminizer {
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    private static final int MIN_RESIDENT_SUBSETS = 64;
+    private static final int MIN_INDEX_SLOTS = 64;
+    private static final int MAX_INDEX_SLOTS = 1 << 28;
+    // a slot is a long fingerprint and an int id, plus 8 bytes of sort space for every other slot
+    private static final int INDEX_SLOT_BYTES = 16;
+    private static final int MAX_RUNS = 8;
+    private static final int PROGRESS_INTERVAL = 1 << 16;
+
+    private final IndexedNFA nfa;
+    private final int words;
+    private final int k;
+    private final int subsetBytes;
+    private final Consumer<SpillStats> progress;
+    private final long startNanos = System.nanoTime();
+
+    // ring of the last residentCapacity subsets: the subset with id lives at (id % residentCapacity) * words
+    private final int residentCapacity;
+    private final long[] resident;
+    private int count;
+
+    // fingerprints not yet written to a run; slot ids are id + 1, 0 for an empty slot
+    private final long[] slotFingerprints;
+    private final int[] slotIds;
+    private final long[] sortSpace;
+    private int unwritten;
+    // older fingerprints, oldest run first
+    private final List<IndexRun> runs = new ArrayList<>();
+    private final ByteBuffer runBuffer;
+    private long runBytes;
+
+    private Path spillFile;
+    private FileChannel spill;
+    private final ByteBuffer spillBuffer;
+    private final ByteBuffer readAhead;
+    private final ByteBuffer probe;
+    private int spilled;
+    private int flushed;
+    private int readAheadFirst;
+    private int readAheadCount;
+    private long diskReads;
+
+    // final-state bits, a long per 64 states in id order, spilled like the subsets once the buffer fills
+    private Path finalsFile;
+    private FileChannel finalsSpill;
+    private final ByteBuffer finalsBuffer;
+    private long finalsWord;
+
+    private SpillingDeterminizer(IndexedNFA nfa, long memoryBudgetBytes, Consumer<SpillStats> progress) {
+        this.nfa = nfa;
+        this.words = nfa.getWords();
+        this.k = nfa.getClassCount();
+        this.subsetBytes = 8 * words;
+        this.progress = progress;
+        int ioBytes = Math.max(IO_BUFFER_BYTES / subsetBytes, 1) * subsetBytes;
+        // the spill and read-ahead buffers, then the row, run and finals buffers
+        long available = memoryBudgetBytes - 2L * ioBytes - 3L * IO_BUFFER_BYTES;
+        // a quarter of the rest indexes fingerprints, the others keep subsets resident
+        int slots = Integer.highestOneBit((int) Math.max(MIN_INDEX_SLOTS, Math.min(MAX_INDEX_SLOTS, available / 4 / INDEX_SLOT_BYTES)));
+        this.slotFingerprints = new long[slots];
+        this.slotIds = new int[slots];
+        this.sortSpace = new long[slots / 2];
+        long residentBytes = available - (long) INDEX_SLOT_BYTES * slots;
+        this.residentCapacity = (int) Math.max(MIN_RESIDENT_SUBSETS, Math.min(Integer.MAX_VALUE / words, residentBytes / subsetBytes));
+        this.resident = new long[residentCapacity * words];
+        this.spillBuffer = ByteBuffer.allocate(ioBytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.readAhead = ByteBuffer.allocate(ioBytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.probe = ByteBuffer.allocate(subsetBytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.runBuffer = ByteBuffer.allocate(IO_BUFFER_BYTES / IndexRun.RECORD_BYTES * IndexRun.RECORD_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        this.finalsBuffer = ByteBuffer.allocate(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static SpillStats determinize(IndexedNFA nfa, Path output, long memoryBudgetBytes, Consumer<SpillStats> progress)
+            throws IOException {
+        SpillingDeterminizer determinizer = new SpillingDeterminizer(nfa, memoryBudgetBytes, progress);
+        try {
+            return determinizer.run(output);
+        } finally {
+            determinizer.closeSpill();
+        }
+    }
+
+    private SpillStats run(Path output) throws IOException {
+        SymbolClasses classes = nfa.getSymbolClasses();
+        int alphabetLength = classes.getAlphabet().length;
+        long[] current = new long[words];
+        long[] next = new long[words];
+        intern(nfa.getStartSet());
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.position(DFAFile.tableOffset(alphabetLength));
+            int rowBytes = 4 * k;
+            ByteBuffer rows = ByteBuffer.allocate(Math.max(1, IO_BUFFER_BYTES / rowBytes) * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+            // subsets are numbered in discovery order, so rows come out in file order and ids double as the worklist
+            for (int id = 0; id < count; id++) {
+                read(id, current);
+                if (nfa.containsFinal(current)) finalsWord |= 1L << id;
+                if ((id & 63) == 63) addFinalsWord();
+                if (rows.remaining() < rowBytes) {
+                    rows.flip();
+                    DFAFile.writeFully(out, rows);
+                    rows.clear();
+                }
+                for (int cls = 0; cls < k; cls++) {
+                    nfa.step(current, cls, next);
+                    rows.putInt(IndexedNFA.isEmpty(next) ? -1 : intern(next));
+                }
+                if ((id + 1) % PROGRESS_INTERVAL == 0 && progress != null) progress.accept(stats(id + 1, out.position()));
+            }
+            rows.flip();
+            DFAFile.writeFully(out, rows);
+
+            if ((count & 63) != 0) addFinalsWord();
+            writeFinals(out, DFAFile.finalsOffset(alphabetLength, count, k));
+            DFAFile.writeFully(out, DFAFile.header(classes, count, 0), 0);
+
+            SpillStats stats = stats(count, out.size());
+            if (progress != null) progress.accept(stats);
+            return stats;
+        }
+    }
+
+    private int intern(long[] subset) throws IOException {
+        long fingerprint = fingerprint(subset);
+        int mask = slotIds.length - 1;
+        int slot = home(fingerprint, mask);
+        for (; slotIds[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotFingerprints[slot] == fingerprint && matches(slotIds[slot] - 1, subset)) return slotIds[slot] - 1;
+        }
+        // newer runs first, since the BFS mostly meets subsets it found recently
+        for (int r = runs.size() - 1; r >= 0; r--) {
+            IndexRun run = runs.get(r);
+            for (long record = run.lowerBound(fingerprint); record < run.size && run.fingerprint(record) == fingerprint; record++) {
+                if (matches(run.id(record), subset)) return run.id(record);
+            }
+        }
+
+        int id = count++;
+        slotFingerprints[slot] = fingerprint;
+        slotIds[slot] = id + 1;
+        if (++unwritten * 2 >= slotIds.length) writeRun();
+
+        if (id >= residentCapacity) evict(id - residentCapacity);
+        System.arraycopy(subset, 0, resident, (id % residentCapacity) * words, words);
+        return id;
+    }
+
+    // Writes the hash table out as a run sorted by fingerprint and empties it. Sorting the fingerprints alone is
+    // enough: the ids of each distinct fingerprint are then found by probing for it, as intern() does.
+    private void writeRun() throws IOException {
+        int n = 0;
+        for (int slot = 0; slot < slotIds.length; slot++) {
+            if (slotIds[slot] != 0) sortSpace[n++] = slotFingerprints[slot];
+        }
+        Arrays.sort(sortSpace, 0, n);
+
+        Path file = Files.createTempFile("dfa-index", ".run");
+        long records = 0;
+        int mask = slotIds.length - 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < n; i++) {
+                if (i > 0 && sortSpace[i] == sortSpace[i - 1]) continue;
+                for (int slot = home(sortSpace[i], mask); slotIds[slot] != 0; slot = (slot + 1) & mask) {
+                    if (slotFingerprints[slot] == sortSpace[i]) {
+                        addRecord(channel, sortSpace[i], slotIds[slot] - 1);
+                        records++;
+                    }
+                }
+            }
+            flushRecords(channel);
+        }
+        Arrays.fill(slotIds, 0);
+        unwritten = 0;
+        runs.add(new IndexRun(file, records));
+        runBytes += records * IndexRun.RECORD_BYTES;
+        if (runs.size() > MAX_RUNS) mergeRuns();
+    }
+
+    // merges every run into one, so that a lookup never searches more than MAX_RUNS of them
+    private void mergeRuns() throws IOException {
+        Path file = Files.createTempFile("dfa-index", ".run");
+        long[] positions = new long[runs.size()];
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (true) {
+                int smallest = -1;
+                for (int r = 0; r < runs.size(); r++) {
+                    if (positions[r] < runs.get(r).size && (smallest < 0
+                            || runs.get(r).fingerprint(positions[r]) < runs.get(smallest).fingerprint(positions[smallest]))) {
+                        smallest = r;
+                    }
+                }
+                if (smallest < 0) break;
+                IndexRun run = runs.get(smallest);
+                addRecord(channel, run.fingerprint(positions[smallest]), run.id(positions[smallest]));
+                positions[smallest]++;
+                records++;
+            }
+            flushRecords(channel);
+        }
+        for (IndexRun run : runs) run.delete();
+        runs.clear();
+        runs.add(new IndexRun(file, records));
+        runBytes = records * IndexRun.RECORD_BYTES;
+    }
+
+    private void addRecord(FileChannel channel, long fingerprint, int id) throws IOException {
+        if (!runBuffer.hasRemaining()) flushRecords(channel);
+        runBuffer.putLong(fingerprint).putInt(id);
+    }
+
+    private void flushRecords(FileChannel channel) throws IOException {
+        runBuffer.flip();
+        DFAFile.writeFully(channel, runBuffer);
+        runBuffer.clear();
+    }
+
+    private boolean matches(int id, long[] subset) throws IOException {
+        if (id >= count - residentCapacity) {
+            int offset = (id % residentCapacity) * words;
+            for (int i = 0; i < words; i++) {
+                if (resident[offset + i] != subset[i]) return false;
+            }
+            return true;
+        }
+        flushBefore(id);
+        probe.clear();
+        readFully(probe, (long) id * subsetBytes);
+        diskReads++;
+        for (int i = 0; i < words; i++) {
+            if (probe.getLong(8 * i) != subset[i]) return false;
+        }
+        return true;
+    }
+
+    private void read(int id, long[] dest) throws IOException {
+        if (id >= count - residentCapacity) {
+            System.arraycopy(resident, (id % residentCapacity) * words, dest, 0, words);
+            return;
+        }
+        // the BFS reads spilled subsets in id order, so fill a whole buffer of them at a time
+        if (id < readAheadFirst || id >= readAheadFirst + readAheadCount) {
+            flushBefore(id);
+            readAheadFirst = id;
+            readAheadCount = Math.min(flushed - id, readAhead.capacity() / subsetBytes);
+            readAhead.clear().limit(readAheadCount * subsetBytes);
+            readFully(readAhead, (long) id * subsetBytes);
+            diskReads++;
+        }
+        int offset = (id - readAheadFirst) * subsetBytes;
+        for (int i = 0; i < words; i++) dest[i] = readAhead.getLong(offset + 8 * i);
+    }
+
+    private void evict(int id) throws IOException {
+        if (spill == null) {
+            spillFile = Files.createTempFile("dfa-subsets", ".spill");
+            spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        if (spillBuffer.remaining() < subsetBytes) flush();
+        int offset = (id % residentCapacity) * words;
+        for (int i = 0; i < words; i++) spillBuffer.putLong(resident[offset + i]);
+        spilled++;
+    }
+
+    private void flushBefore(int id) throws IOException {
+        if (id >= flushed) flush();
+    }
+
+    private void flush() throws IOException {
+        spillBuffer.flip();
+        DFAFile.writeFully(spill, spillBuffer, (long) flushed * subsetBytes);
+        spillBuffer.clear();
+        flushed = spilled;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (spill.read(buffer, position + buffer.position()) < 0) throw new IOException("Spill file " + spillFile + " is truncated");
+        }
+    }
+
+    private void addFinalsWord() throws IOException {
+        if (!finalsBuffer.hasRemaining()) {
+            if (finalsSpill == null) {
+                finalsFile = Files.createTempFile("dfa-finals", ".spill");
+                finalsSpill = FileChannel.open(finalsFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            finalsBuffer.flip();
+            DFAFile.writeFully(finalsSpill, finalsBuffer);
+            finalsBuffer.clear();
+        }
+        finalsBuffer.putLong(finalsWord);
+        finalsWord = 0;
+    }
+
+    // copies the spilled final-state words, then the buffered ones, to position in out
+    private void writeFinals(FileChannel out, long position) throws IOException {
+        if (finalsSpill != null) {
+            long size = finalsSpill.size();
+            ByteBuffer chunk = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            for (long from = 0; from < size; from += chunk.limit()) {
+                chunk.clear();
+                if (finalsSpill.read(chunk, from) < 0) throw new IOException("Spill file " + finalsFile + " is truncated");
+                chunk.flip();
+                DFAFile.writeFully(out, chunk, position + from);
+            }
+            position += size;
+        }
+        finalsBuffer.flip();
+        DFAFile.writeFully(out, finalsBuffer, position);
+    }
+
+    private void closeSpill() throws IOException {
+        for (IndexRun run : runs) run.delete();
+        if (finalsSpill != null) {
+            finalsSpill.close();
+            Files.deleteIfExists(finalsFile);
+        }
+        if (spill == null) return;
+        spill.close();
+        Files.deleteIfExists(spillFile);
+    }
+
+    private SpillStats stats(int expanded, long outputBytes) {
+        long indexBytes = (long) INDEX_SLOT_BYTES * slotIds.length;
+        return new SpillStats(count, expanded, Math.min(count, residentCapacity), spilled, (long) spilled * subsetBytes,
+                diskReads, indexBytes, runs.size(), runBytes, outputBytes, System.nanoTime() - startNanos);
+    }
+
+    private static int home(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static long fingerprint(long[] subset) {
+        long h = 0x2545F4914F6CDD1DL;
+        for (long word : subset) {
+            h = (h ^ word) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    // (fingerprint, id) records sorted by fingerprint, mapped rather than read so that lookups cost no heap;
+    // mapped in windows like DFAFile, since a run of more than 2^27 records passes the 2 GiB a mapping can hold
+    private static final class IndexRun {
+        static final int RECORD_BYTES = 12;
+        static final int WINDOW_SHIFT = 27;
+
+        final Path file;
+        final long size;
+        private final ByteBuffer[] windows;
+
+        IndexRun(Path file, long size) throws IOException {
+            this.file = file;
+            this.size = size;
+            this.windows = new ByteBuffer[(int) ((size + (1L << WINDOW_SHIFT) - 1) >>> WINDOW_SHIFT)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int w = 0; w < windows.length; w++) {
+                    long first = (long) w << WINDOW_SHIFT;
+                    long records = Math.min(1L << WINDOW_SHIFT, size - first);
+                    windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, first * RECORD_BYTES, records * RECORD_BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+        }
+
+        long fingerprint(long record) {
+            return windows[(int) (record >>> WINDOW_SHIFT)].getLong(offset(record));
+        }
+
+        int id(long record) {
+            return windows[(int) (record >>> WINDOW_SHIFT)].getInt(offset(record) + 8);
+        }
+
+        // the first record whose fingerprint is not below fingerprint
+        long lowerBound(long fingerprint) {
+            long low = 0;
+            long high = size;
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                if (fingerprint(middle) < fingerprint) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // a mapping keeps its file open on some systems until it is collected, so fall back to deleting on exit
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+
+        private static int offset(long record) {
+            return (int) (record & ((1L << WINDOW_SHIFT) - 1)) * RECORD_BYTES;
+        }
+    }
+}
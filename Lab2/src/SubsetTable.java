@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+class SubsetTable {
+    private final int words;
+    private long[] subsets;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    SubsetTable(int words) {
+        this.words = words;
+        this.subsets = new long[words * 16];
+        this.hashes = new int[16];
+        this.slots = new int[32];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int find(long[] subset) {
+        int hash = hash(subset);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return -1;
+            if (hashes[entry - 1] == hash && matches(entry - 1, subset)) return entry - 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    public int intern(long[] subset) {
+        int hash = hash(subset);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int id = append(subset, hash);
+                slots[slot] = id + 1;
+                if (size * 2 > slots.length) rehash();
+                return id;
+            }
+            if (hashes[entry - 1] == hash && matches(entry - 1, subset)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public void copy(int id, long[] dest) {
+        System.arraycopy(subsets, id * words, dest, 0, words);
+    }
+
+    private int append(long[] subset, int hash) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            subsets = Arrays.copyOf(subsets, size * 2 * words);
+        }
+        System.arraycopy(subset, 0, subsets, size * words, words);
+        hashes[size] = hash;
+        return size++;
+    }
+
+    private boolean matches(int id, long[] subset) {
+        int offset = id * words;
+        for (int i = 0; i < words; i++) {
+            if (subsets[offset + i] != subset[i]) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    static int hash(long[] subset) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (long word : subset) {
+            h = (h ^ word) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
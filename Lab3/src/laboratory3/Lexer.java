@@ -1,6 +1,9 @@
 package laboratory3;
 
+import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,12 +20,39 @@ public class Lexer {
     private static final String PIPE_LINE_REGEX = "->";
     private static final String SEMICOLON_REGEX = ";"; // Add regex for semicolon
 
-    private static final String TOKEN_REGEX = String.join("|",
+    // Alternatives in match priority order; each one is wrapped in a named group so the group that
+    // matched gives the token type without matching the value again
+    private static final TokenType[] TOKEN_TYPES = {
+            TokenType.COMMAND, TokenType.PARAMETER, TokenType.NUMBER, TokenType.VIDEO_IDENTIFIER, TokenType.FILE_PATH,
+            TokenType.FOLDER_PATH, TokenType.EQUALS, TokenType.START_COMMAND, TokenType.PIPE_LINE, TokenType.SEMICOLON
+    };
+    private static final String[] TOKEN_REGEXES = {
             COMMAND_REGEX, PARAMETER_REGEX, NUMBER_REGEX, VIDEO_IDENTIFIER_REGEX, FILE_PATH_REGEX,
             FOLDER_PATH_REGEX, EQUALS_REGEX, START_COMMAND_REGEX, PIPE_LINE_REGEX, SEMICOLON_REGEX
-    );
+    };
 
-    private static final Pattern TOKEN_PATTERN = Pattern.compile(TOKEN_REGEX);
+    private static final String TOKEN_REGEX;
+    // capturing group number of each alternative's named group, found once instead of by name per token
+    private static final int[] TOKEN_GROUPS = new int[TOKEN_TYPES.length];
+
+    static {
+        StringJoiner alternatives = new StringJoiner("|");
+        int group = 1;
+        for (int i = 0; i < TOKEN_TYPES.length; i++) {
+            alternatives.add("(?<" + groupName(TOKEN_TYPES[i]) + ">" + TOKEN_REGEXES[i] + ")");
+            TOKEN_GROUPS[i] = group;
+            group += 1 + Pattern.compile(TOKEN_REGEXES[i]).matcher("").groupCount();
+        }
+        TOKEN_REGEX = alternatives.toString();
+    }
+
+    static final Pattern TOKEN_PATTERN = Pattern.compile(TOKEN_REGEX);
+
+    // pieces smaller than this are not worth a task of their own
+    private static final int MIN_CHUNK_CHARS = 1 << 16;
+
+    // how far past its start an attempt other than a path can read: "--format" and the \b after it
+    private static final int SHORT_READ_CHARS = 10;
 
     private final String input;
 
@@ -30,76 +60,271 @@ public class Lexer {
         this.input = input;
     }
 
+    // pulls tokens from reader one at a time instead of reading the whole script into memory
+    public static TokenStream stream(Reader reader) {
+        return new TokenStream(reader);
+    }
+
     public List<Token> tokenize() {
-        List<Token> tokens = new ArrayList<>();
-        Matcher matcher = TOKEN_PATTERN.matcher(input);
-        int start = 0; // Start index of the current token in the input string
+        return tokenizeToBuffer().toTokens();
+    }
+
+    // tokenizes into offsets of the input; no token text is copied
+    public TokenBuffer tokenizeToBuffer() {
+        TokenBuffer tokens = new TokenBuffer(input);
+        scan(tokens, TOKEN_PATTERN.matcher(input), 0, input.length(), true);
+
+        // Add EOF token after processing all tokens
+        tokens.add(TokenType.EOF, input.length(), 0);
+        reportErrors(tokens);
+        return tokens;
+    }
+
+    // Splits the script after top-level semicolons and lexes the pieces on a fork-join pool. The result,
+    // errors and their offsets included, is the same as tokenizeToBuffer().
+    public TokenBuffer tokenizeParallel(int parallelism) {
+        return tokenizeParallel(parallelism, Math.max(MIN_CHUNK_CHARS, input.length() / (4 * Math.max(1, parallelism))));
+    }
+
+    TokenBuffer tokenizeParallel(int parallelism, int chunkChars) {
+        int[] bounds = splitPoints(input, chunkChars);
+        int chunks = bounds.length - 1;
+        TokenBuffer[] pieces = new TokenBuffer[chunks];
+        boolean[] exact = new boolean[chunks];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new LexChunks(bounds, pieces, exact, 0, chunks));
+        } finally {
+            pool.shutdown();
+        }
+
+        TokenBuffer tokens = new TokenBuffer(input);
+        int chunk = 0;
+        while (chunk < chunks) {
+            // a token may run past the semicolon a piece was cut at (say, one inside a quoted path);
+            // such a piece is lexed again together with everything up to the next exact cut
+            int end = chunk + 1;
+            TokenBuffer piece = pieces[chunk];
+            boolean pieceExact = exact[chunk];
+            while (!pieceExact) {
+                end++;
+                piece = new TokenBuffer(input);
+                pieceExact = scan(piece, TOKEN_PATTERN.matcher(input), bounds[chunk], bounds[end], end == chunks);
+            }
+            tokens.addAll(piece);
+            chunk = end;
+        }
+        tokens.add(TokenType.EOF, input.length(), 0);
+        reportErrors(tokens);
+        return tokens;
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private class LexChunks extends RecursiveAction {
+        private final int[] bounds;
+        private final TokenBuffer[] pieces;
+        private final boolean[] exact;
+        private final int from;
+        private final int to;
+
+        LexChunks(int[] bounds, TokenBuffer[] pieces, boolean[] exact, int from, int to) {
+            this.bounds = bounds;
+            this.pieces = pieces;
+            this.exact = exact;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LexChunks(bounds, pieces, exact, from, middle), new LexChunks(bounds, pieces, exact, middle, to));
+                return;
+            }
+            pieces[from] = new TokenBuffer(input);
+            exact[from] = scan(pieces[from], TOKEN_PATTERN.matcher(input), bounds[from], bounds[from + 1], from + 1 == bounds.length - 1);
+        }
+    }
+
+    // Chunk boundaries just after semicolons outside quotes, at least chunkChars apart
+    static int[] splitPoints(String input, int chunkChars) {
+        int[] bounds = new int[16];
+        int count = 1;
+        boolean quoted = false;
+        int next = chunkChars;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ';' && !quoted && i + 1 >= next && i + 1 < input.length()) {
+                if (count + 1 == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                bounds[count++] = i + 1;
+                next = i + 1 + chunkChars;
+            }
+        }
+        bounds[count++] = input.length();
+        return Arrays.copyOf(bounds, count);
+    }
+
+    // Scans [from, to) into tokens and returns whether they are exactly what a scan of the whole input
+    // produces there: no match looked past the end of the range and the last token ends on it
+    private boolean scan(TokenBuffer tokens, Matcher matcher, int from, int to, boolean atEnd) {
+        // lookarounds see the whole input, and $ only anchors at its real end
+        matcher.region(from, to).useTransparentBounds(true).useAnchoringBounds(atEnd);
+        int start = from; // Start index of the current token in the input string
+        boolean exact = true;
 
         while (matcher.find()) {
+            exact &= !matcher.hitEnd();
             if (matcher.start() > start) {
                 // There's unmatched input before the current match
-                String unmatchedInput = input.substring(start, matcher.start()).trim();
-                if (!unmatchedInput.trim().isEmpty()) {
-                    reportError(unmatchedInput);
-                }
+                recordUnmatched(input, tokens, start, matcher.start());
             }
 
-            String value = matcher.group();
-            TokenType type = determineTokenType(value);
+            addMatch(tokens, matcher);
+            start = matcher.end();
+        }
 
-            // Special case for absorbing quotes within the value
-            if (type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH) {
-                tokens.add(new Token(TokenType.QUOTE, "\""));
-                tokens.add(new Token(type, value.substring(1, value.length() - 1)));
-                tokens.add(new Token(TokenType.QUOTE, "\""));
-            } else {
-                tokens.add(new Token(type, value));
-            }
+        // Handle any trailing unmatched input
+        if (start < to) {
+            recordUnmatched(input, tokens, start, to);
+        }
+        return atEnd || exact && start == to;
+    }
+
+    private static void addMatch(TokenBuffer tokens, Matcher matcher) {
+        TokenType type = matchedType(matcher);
+        if (type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH) {
+            tokens.add(type, matcher.start() + 1, matcher.end() - matcher.start() - 2);
+        } else {
+            tokens.add(type, matcher.start(), matcher.end() - matcher.start());
+        }
+    }
+
+    // The tokens of previous.getSource() with removed characters at offset replaced by inserted, re-lexing
+    // only around the edit: from the end of the last token that ends before it, until a token ends past the
+    // edit exactly where an old token ended. From there both scans see the same text, so the old tokens and
+    // errors are reused, moved by the change in length. The result shares the text and the token blocks on
+    // either side of the edit with previous, which stays valid, so an edit costs about as much as the text it
+    // re-lexes. Errors are recorded in the result, not printed.
+    public static TokenBuffer relex(TokenBuffer previous, int offset, int removed, String inserted) {
+        SourceText old = SourceText.of(previous.getSource());
+        SourceText source = old.edit(offset, removed, inserted);
+        int shift = inserted.length() - removed;
+        int editEnd = offset + inserted.length();
+
+        // Scanning before the edit must not have read into it. Apart from quotes, every alternative gives up
+        // or matches within a few characters; a quote reads on to the next one, so only the last quote before
+        // the edit can see it; and a folder path's lookahead reads to the end of its line but can only
+        // succeed on the last line, so there every token from the start of the line may change.
+        int limit = offset - SHORT_READ_CHARS;
+        int lastQuote = lastIndexOf(old, '"', offset - 1);
+        if (lastQuote >= 0) limit = Math.min(limit, lastQuote);
+        if (onLastLine(old, offset) || onLastLine(source, offset)) {
+            limit = Math.min(limit, lineStart(source, offset));
+        }
+        int kept = previous.countEndingBefore(limit);
+        int restart = kept == 0 ? 0 : previous.matchEnd(kept - 1);
 
+        TokenBuffer tokens = new TokenBuffer(source);
+        tokens.addRange(previous, 0, kept, 0);
+        tokens.addErrors(previous, 0, previous.countErrorsEndingBy(restart), 0);
+
+        Matcher matcher = TOKEN_PATTERN.matcher(source).useTransparentBounds(true);
+        matcher.region(restart, source.length());
+        int start = restart;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                recordUnmatched(source, tokens, start, matcher.start());
+            }
+            addMatch(tokens, matcher);
             start = matcher.end();
+
+            if (start > editEnd) {
+                int resync = previous.countEndingBefore(start - shift);
+                if (resync < previous.size() - 1 && previous.matchEnd(resync) == start - shift) {
+                    tokens.addRange(previous, resync + 1, previous.size(), shift);
+                    // errors after the resync point start at or after it, so those are the ones that do not end before
+                    int firstError = previous.countErrorsEndingBy(start - shift);
+                    tokens.addErrors(previous, firstError, previous.getErrorCount(), shift);
+                    return tokens;
+                }
+            }
+        }
+        if (start < source.length()) {
+            recordUnmatched(source, tokens, start, source.length());
         }
+        tokens.add(TokenType.EOF, source.length(), 0);
+        return tokens;
+    }
 
-        // Add EOF token after processing all tokens
-        tokens.add(new Token(TokenType.EOF, ""));
+    private static int lastIndexOf(CharSequence text, char c, int from) {
+        for (int i = from; i >= 0; i--) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
 
-        // Handle any trailing unmatched input
-        if (start < input.length()) {
-            String unmatchedInput = input.substring(start).trim();
-            if (!unmatchedInput.trim().isEmpty()) {
-                reportError(unmatchedInput); // Handle or report the unmatched input
+    // whether no line break follows offset, other than one that ends the input (where $ also matches)
+    private static boolean onLastLine(CharSequence text, int offset) {
+        for (int i = offset; i < text.length(); i++) {
+            if (isLineTerminator(text.charAt(i))) {
+                int end = text.charAt(i) == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n' ? i + 2 : i + 1;
+                return end == text.length();
             }
         }
+        return true;
+    }
+
+    // the start of the line offset is on, or of the line before when offset starts a line: $ matching
+    // before a final line break depends on what follows the break
+    private static int lineStart(CharSequence text, int offset) {
+        int i = offset;
+        if (i > 0 && isLineTerminator(text.charAt(i - 1))) {
+            i -= text.charAt(i - 1) == '\n' && i > 1 && text.charAt(i - 2) == '\r' ? 2 : 1;
+        }
+        while (i > 0 && !isLineTerminator(text.charAt(i - 1))) i--;
+        return i;
+    }
 
-        return tokens;
+    // the characters . does not match
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
-    private void reportError(String value) {
+    // gaps between tokens are almost always whitespace, so look before recording one as an error
+    static void recordUnmatched(CharSequence input, TokenBuffer tokens, int from, int to) {
+        while (from < to && input.charAt(from) <= ' ') from++;
+        while (to > from && input.charAt(to - 1) <= ' ') to--;
+        if (from < to) {
+            tokens.addError(from, to);
+        }
+    }
+
+    static void reportErrors(TokenBuffer tokens) {
+        for (int i = 0; i < tokens.getErrorCount(); i++) {
+            reportError(tokens.errorText(i));
+        }
+    }
+
+    static void reportError(String value) {
         System.err.println("Unrecognized input: '" + value + "'");
     }
 
-    private TokenType determineTokenType(String value) {
-        if (value.matches(COMMAND_REGEX)) {
-            return TokenType.COMMAND;
-        } else if (value.matches(NUMBER_REGEX)) {
-            return TokenType.NUMBER;
-        } else if (value.matches(VIDEO_IDENTIFIER_REGEX)) {
-            return TokenType.VIDEO_IDENTIFIER;
-        } else if (value.matches(FILE_PATH_REGEX)) {
-            return TokenType.FILE_PATH;
-        } else if (value.matches(PARAMETER_REGEX)) {
-            return TokenType.PARAMETER;
-        } else if (value.matches(FOLDER_PATH_REGEX)) {
-            return TokenType.FOLDER_PATH;
-        } else if (value.matches(EQUALS_REGEX)) {
-            return TokenType.EQUALS;
-        } else if (value.matches(START_COMMAND_REGEX)) {
-            return TokenType.START_COMMAND;
-        } else if (value.matches(PIPE_LINE_REGEX)) {
-            return TokenType.PIPE_LINE;
-        } else if (value.matches(SEMICOLON_REGEX)) {
-            return TokenType.SEMICOLON; // Handle semicolon as a token type
-        } else {
-            return TokenType.UNKNOWN;
+    static TokenType matchedType(Matcher matcher) {
+        for (int i = 0; i < TOKEN_GROUPS.length; i++) {
+            if (matcher.start(TOKEN_GROUPS[i]) >= 0) return TOKEN_TYPES[i];
+        }
+        return TokenType.UNKNOWN;
+    }
+
+    // group names may only hold letters and digits, so FILE_PATH becomes filePath
+    private static String groupName(TokenType type) {
+        StringBuilder name = new StringBuilder();
+        for (String part : type.name().toLowerCase().split("_")) {
+            name.append(name.length() == 0 ? part : Character.toUpperCase(part.charAt(0)) + part.substring(1));
         }
+        return name.toString();
     }
 }
@@ -0,0 +1,210 @@
+package laboratory3;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LexerBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final String[] COMMANDS = {"cut", "fade", "overlay", "trim", "speed", "reverse", "resize", "rotate", "flipX", "flipY"};
+    private static final String[] PARAMETERS = {"x", "y", "w", "h", "deg", "lvl", "format"};
+    private static final String[] EXTENSIONS = {"mp4", "avi", "mov", "flv", "mkv"};
+
+    // the combined pattern the Lexer used before its alternatives became named groups
+    private static final Pattern LEGACY_PATTERN = Pattern.compile(String.join("|",
+            "\\b(cut|fade|overlay|trim|speed|reverse|resize|rotate|flipX|flipY)\\b", "--(x|y|w|h|deg|lvl|video|format)\\b",
+            "-?\\d+", "video", "\"[^\"]+\\.(mp4|avi|mov|flv|mkv)\"", "\"(?!.*\\.(mp4|avi|mov|flv|mkv)$)[^\"]+\"", "=", "imp", "->", ";"));
+
+    public static void main(String[] args) {
+        String script = script(new Random(1), 60_000);
+        double megabytes = script.length() / (1024.0 * 1024.0);
+        System.out.printf("Tokenizing a %.1f MiB script (%d tokens)%n", megabytes, new Lexer(script).tokenize().size());
+
+        long legacy = time(() -> legacyTokenize(script));
+        long named = time(() -> new Lexer(script).tokenize());
+        report("  match + determineTokenType", legacy, megabytes);
+        report("  named groups, single match", named, megabytes);
+        System.out.printf("  speedup: %.1fx%n", (double) legacy / named);
+
+        benchmarkTokenBuffer(script, megabytes);
+        benchmarkGenerated(script, megabytes);
+        benchmarkParallel(script, megabytes);
+        benchmarkStreaming(script, 50);
+        benchmarkIncremental(script);
+    }
+
+    private static void benchmarkParallel(String script, double megabytes) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Parallel lexing on " + cores + " cores");
+        report("  tokenizeToBuffer()", time(() -> new Lexer(script).tokenizeToBuffer()), megabytes);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            int parallelism = threads;
+            report("  tokenizeParallel(" + parallelism + ")", time(() -> new Lexer(script).tokenizeParallel(parallelism)), megabytes);
+        }
+    }
+
+    private static void benchmarkTokenBuffer(String script, double megabytes) {
+        System.out.println("Token objects vs TokenBuffer");
+        report("  tokenize()", time(() -> new Lexer(script).tokenize()), megabytes);
+        report("  tokenizeToBuffer()", time(() -> new Lexer(script).tokenizeToBuffer()), megabytes);
+        System.out.printf("  allocated: tokenize() %d KiB, tokenizeToBuffer() %d KiB%n",
+                allocatedBytes(() -> new Lexer(script).tokenize()) >> 10,
+                allocatedBytes(() -> new Lexer(script).tokenizeToBuffer()) >> 10);
+    }
+
+    // the same scan as a DFA compiled by ast.ScannerGenerator instead of java.util.regex
+    private static void benchmarkGenerated(String script, double megabytes) {
+        System.out.println("Regex Lexer vs generated DFA");
+        long lexer = time(() -> new Lexer(script).tokenizeToBuffer());
+        long generated = time(() -> new GeneratedLexer(script).tokenizeToBuffer());
+        report("  Lexer", lexer, megabytes);
+        report("  GeneratedLexer", generated, megabytes);
+        System.out.printf("  speedup: %.1fx%n", (double) lexer / generated);
+    }
+
+    private static long allocatedBytes(Supplier<?> task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        task.get();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    // streams the script repeated many times from a Reader that never holds more than one copy
+    private static void benchmarkStreaming(String script, int copies) {
+        double megabytes = copies * (script.length() / (1024.0 * 1024.0));
+        System.out.printf("Streaming a %.0f MiB script through TokenStream%n", megabytes);
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        long tokens = 0;
+        for (TokenStream stream = Lexer.stream(new RepeatingReader(script, copies)); stream.hasNext(); stream.next()) tokens++;
+        long nanos = System.nanoTime() - start;
+        report("  TokenStream (" + tokens + " tokens)", nanos, megabytes);
+        System.out.printf("  heap in use before %d KiB, after %d KiB%n", heapBefore >> 10, usedHeap() >> 10);
+    }
+
+    // types a pipeline stage into the middle of the script one keystroke at a time, re-lexing after each
+    private static void benchmarkIncremental(String script) {
+        String typed = " -> rotate --deg 90";
+        int offset = script.indexOf(';', script.length() / 2);
+        System.out.println("Re-lexing after each keystroke in the middle of the script");
+        long full = time(() -> new Lexer(script).tokenizeToBuffer());
+        TokenBuffer before = new Lexer(script).tokenizeToBuffer();
+        long incremental = time(() -> {
+            TokenBuffer tokens = before;
+            for (int i = 0; i < typed.length(); i++) {
+                tokens = Lexer.relex(tokens, offset + i, 0, typed.substring(i, i + 1));
+            }
+            return tokens;
+        });
+        long perKeystroke = incremental / typed.length();
+        System.out.printf("  tokenizeToBuffer()  %10.3f ms%n", full / 1e6);
+        System.out.printf("  relex()             %10.3f ms per keystroke (%.0fx less)%n", perKeystroke / 1e6, (double) full / perKeystroke);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class RepeatingReader extends Reader {
+        private final String text;
+        private int copiesLeft;
+        private int position;
+
+        RepeatingReader(String text, int copies) {
+            this.text = text;
+            this.copiesLeft = copies;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (copiesLeft == 0) return -1;
+            int count = Math.min(length, text.length() - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            if (position == text.length()) {
+                position = 0;
+                copiesLeft--;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // one statement per line: imp video = "clip.ext" -> command --param n ... -> ... ;
+    static String script(Random random, int statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int s = 0; s < statements; s++) {
+            sb.append("imp video = \"clips/take").append(random.nextInt(1000)).append('.')
+                    .append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]).append('"');
+            int steps = 1 + random.nextInt(4);
+            for (int i = 0; i < steps; i++) {
+                sb.append(" -> ").append(COMMANDS[random.nextInt(COMMANDS.length)]);
+                int parameters = random.nextInt(3);
+                for (int p = 0; p < parameters; p++) {
+                    sb.append(" --").append(PARAMETERS[random.nextInt(PARAMETERS.length)]).append(' ').append(random.nextInt(2000) - 100);
+                }
+            }
+            if (random.nextInt(4) == 0) sb.append(" -> overlay --video \"exports/final").append(random.nextInt(10)).append('"');
+            sb.append(" ;\n");
+        }
+        return sb.toString();
+    }
+
+    // The tokenizer before named groups: one match, then up to ten String.matches calls to find the type
+    static List<Token> legacyTokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        Matcher matcher = LEGACY_PATTERN.matcher(input);
+        while (matcher.find()) {
+            String value = matcher.group();
+            TokenType type = legacyTokenType(value);
+            if (type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH) {
+                tokens.add(new Token(TokenType.QUOTE, "\""));
+                tokens.add(new Token(type, value.substring(1, value.length() - 1)));
+                tokens.add(new Token(TokenType.QUOTE, "\""));
+            } else {
+                tokens.add(new Token(type, value));
+            }
+        }
+        tokens.add(new Token(TokenType.EOF, ""));
+        return tokens;
+    }
+
+    private static TokenType legacyTokenType(String value) {
+        if (value.matches("\\b(cut|fade|overlay|trim|speed|reverse|resize|rotate|flipX|flipY)\\b")) return TokenType.COMMAND;
+        if (value.matches("-?\\d+")) return TokenType.NUMBER;
+        if (value.matches("video")) return TokenType.VIDEO_IDENTIFIER;
+        if (value.matches("\"[^\"]+\\.(mp4|avi|mov|flv|mkv)\"")) return TokenType.FILE_PATH;
+        if (value.matches("--(x|y|w|h|deg|lvl|video|format)\\b")) return TokenType.PARAMETER;
+        if (value.matches("\"(?!.*\\.(mp4|avi|mov|flv|mkv)$)[^\"]+\"")) return TokenType.FOLDER_PATH;
+        if (value.matches("=")) return TokenType.EQUALS;
+        if (value.matches("imp")) return TokenType.START_COMMAND;
+        if (value.matches("->")) return TokenType.PIPE_LINE;
+        if (value.matches(";")) return TokenType.SEMICOLON;
+        return TokenType.UNKNOWN;
+    }
+
+    static long time(Supplier<?> task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) task.get();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static void report(String label, long nanos, double megabytes) {
+        System.out.printf("%-40s %10.3f ms %8.1f MiB/s%n", label, nanos / 1e6, megabytes / (nanos / 1e9));
+    }
+}
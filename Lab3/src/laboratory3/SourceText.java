@@ -0,0 +1,125 @@
+package laboratory3;
+
+import java.util.Arrays;
+
+// Script text as a sequence of pieces, each a range of some String. An edit builds new text that shares every
+// piece it does not touch, so it copies the edit and the pieces around it rather than the whole script.
+final class SourceText implements CharSequence {
+    static final int PIECE_CHARS = 4096;
+
+    private final String[] strings;
+    private final int[] offsets;
+    // where each piece starts in the text, and the length of the text after the last one
+    private final int[] starts;
+    private final int pieceCount;
+    // piece of the last lookup; the matcher reads mostly in order
+    private int hint;
+
+    private SourceText(String[] strings, int[] offsets, int[] starts, int pieceCount) {
+        this.strings = strings;
+        this.offsets = offsets;
+        this.starts = starts;
+        this.pieceCount = pieceCount;
+    }
+
+    // the text itself when it already is a SourceText, otherwise pieces of it that copy nothing
+    static SourceText of(CharSequence text) {
+        if (text instanceof SourceText) return (SourceText) text;
+        String string = text.toString();
+        int count = Math.max(1, (string.length() + PIECE_CHARS - 1) / PIECE_CHARS);
+        String[] strings = new String[count];
+        int[] offsets = new int[count];
+        int[] starts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            strings[i] = string;
+            offsets[i] = i * PIECE_CHARS;
+            starts[i] = i * PIECE_CHARS;
+        }
+        starts[count] = string.length();
+        return new SourceText(strings, offsets, starts, count);
+    }
+
+    // this text with removed characters at offset replaced by inserted
+    SourceText edit(int offset, int removed, String inserted) {
+        int first = length() == 0 ? 0 : pieceOf(Math.min(offset, length() - 1));
+        int last = removed == 0 ? first : pieceOf(offset + removed - 1);
+        // a small piece takes in its neighbour, so pieces stay large after many edits
+        if (last + 1 < pieceCount && starts[last + 1] - starts[first] + inserted.length() - removed < PIECE_CHARS / 4) last++;
+
+        StringBuilder middle = new StringBuilder(starts[last + 1] - starts[first] - removed + inserted.length());
+        appendRange(middle, starts[first], offset);
+        middle.append(inserted);
+        appendRange(middle, offset + removed, starts[last + 1]);
+        int newPieces = (middle.length() + PIECE_CHARS - 1) / PIECE_CHARS;
+        int count = pieceCount - (last - first + 1) + newPieces;
+        if (count == 0) {
+            newPieces = 1;
+            count = 1;
+        }
+        String[] newStrings = Arrays.copyOf(strings, count);
+        int[] newOffsets = Arrays.copyOf(offsets, count);
+        int[] newStarts = Arrays.copyOf(starts, count + 1);
+        int after = first + newPieces;
+        System.arraycopy(strings, last + 1, newStrings, after, pieceCount - last - 1);
+        System.arraycopy(offsets, last + 1, newOffsets, after, pieceCount - last - 1);
+        int shift = inserted.length() - removed;
+        for (int i = last + 1; i <= pieceCount; i++) newStarts[i - last - 1 + after] = starts[i] + shift;
+
+        String text = middle.toString();
+        for (int i = 0; i < newPieces; i++) {
+            int pieceStart = (int) ((long) i * text.length() / newPieces);
+            newStrings[first + i] = text;
+            newOffsets[first + i] = pieceStart;
+            newStarts[first + i] = starts[first] + pieceStart;
+        }
+        return new SourceText(newStrings, newOffsets, newStarts, count);
+    }
+
+    @Override
+    public int length() {
+        return starts[pieceCount];
+    }
+
+    @Override
+    public char charAt(int index) {
+        int p = hint;
+        if (index < starts[p] || index >= starts[p + 1]) p = pieceOf(index);
+        return strings[p].charAt(offsets[p] + index - starts[p]);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        appendRange(sb, start, end);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    private void appendRange(StringBuilder sb, int from, int to) {
+        if (from < 0 || to > length() || from > to) throw new IndexOutOfBoundsException("[" + from + ", " + to + ") of " + length());
+        while (from < to) {
+            int p = pieceOf(from);
+            int end = Math.min(to, starts[p + 1]);
+            int base = offsets[p] - starts[p];
+            sb.append(strings[p], base + from, base + end);
+            from = end;
+        }
+    }
+
+    private int pieceOf(int index) {
+        if (index < 0 || index >= length()) throw new IndexOutOfBoundsException("Index " + index + " out of length " + length());
+        int low = 0;
+        int high = pieceCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) low = middle;
+            else high = middle - 1;
+        }
+        hint = low;
+        return low;
+    }
+}
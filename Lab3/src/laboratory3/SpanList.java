@@ -0,0 +1,110 @@
+package laboratory3;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// An append-only list of (type, start, length) entries, kept in blocks of up to BLOCK_SIZE. A list only ever
+// appends to a block it created itself, so other lists can take over whole blocks instead of copying them, and
+// move the starts of a block they take over with a shift of their own instead of rewriting it.
+final class SpanList {
+    static final int BLOCK_SIZE = 1024;
+    // blocks smaller than this are copied rather than shared, which keeps a list from splintering after many edits
+    private static final int MIN_SHARED = BLOCK_SIZE / 4;
+
+    private static final class Block {
+        final byte[] types = new byte[BLOCK_SIZE];
+        final int[] starts = new int[BLOCK_SIZE];
+        final int[] lengths = new int[BLOCK_SIZE];
+        int size;
+    }
+
+    private Block[] blocks = new Block[4];
+    private int[] shifts = new int[4];
+    // index of the first entry of each block, and the size after the last one
+    private int[] firsts = new int[5];
+    private int blockCount;
+    private int size;
+    // the last block while this list may still append to it
+    private Block open;
+    // block of the last lookup; entries are mostly read in order
+    private int hint;
+
+    int size() {
+        return size;
+    }
+
+    void add(int type, int start, int length) {
+        if (open == null || open.size == BLOCK_SIZE) {
+            open = new Block();
+            addBlock(open, 0);
+        }
+        int k = open.size++;
+        open.types[k] = (byte) type;
+        open.starts[k] = start;
+        open.lengths[k] = length;
+        firsts[blockCount] = ++size;
+    }
+
+    // appends entries [from, to) of other with their starts moved by shift
+    void addRange(SpanList other, int from, int to, int shift) {
+        if (from >= to) return;
+        for (int b = other.blockOf(from); from < to; b++) {
+            int first = other.firsts[b];
+            int end = Math.min(other.firsts[b + 1], to);
+            Block block = other.blocks[b];
+            int blockShift = other.shifts[b] + shift;
+            if (from == first && end == other.firsts[b + 1] && end - first >= MIN_SHARED) {
+                open = null;
+                addBlock(block, blockShift);
+                size += end - first;
+                firsts[blockCount] = size;
+            } else {
+                for (int k = from - first; k < end - first; k++) {
+                    add(block.types[k], block.starts[k] + blockShift, block.lengths[k]);
+                }
+            }
+            from = end;
+        }
+    }
+
+    int type(int index) {
+        int b = blockOf(index);
+        return blocks[b].types[index - firsts[b]];
+    }
+
+    int start(int index) {
+        int b = blockOf(index);
+        return blocks[b].starts[index - firsts[b]] + shifts[b];
+    }
+
+    int length(int index) {
+        int b = blockOf(index);
+        return blocks[b].lengths[index - firsts[b]];
+    }
+
+    private void addBlock(Block block, int shift) {
+        if (blockCount + 1 == firsts.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            shifts = Arrays.copyOf(shifts, blockCount * 2);
+            firsts = Arrays.copyOf(firsts, blockCount * 2 + 1);
+        }
+        blocks[blockCount] = block;
+        shifts[blockCount] = shift;
+        firsts[++blockCount] = size;
+    }
+
+    private int blockOf(int index) {
+        Objects.checkIndex(index, size);
+        int b = hint;
+        if (index >= firsts[b] && index < firsts[b + 1]) return b;
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firsts[middle] <= index) low = middle;
+            else high = middle - 1;
+        }
+        hint = low;
+        return low;
+    }
+}
@@ -0,0 +1,153 @@
+package laboratory3;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+// Tokens as blocks of parallel arrays of type, start and length into the source (see SpanList), so lexing
+// allocates no per-token objects. A file or folder path is one entry spanning the text between its quotes (the QUOTE tokens of
+// Lexer.tokenize() are implied), and the last entry is always EOF.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    // blocks of entries can be shared with the buffer this one was re-lexed from
+    private final SpanList tokens = new SpanList();
+    // unmatched input, as [start, end) offsets into the source
+    private final SpanList errors = new SpanList();
+
+    TokenBuffer(CharSequence source) {
+        this.source = source;
+    }
+
+    void add(TokenType type, int start, int length) {
+        tokens.add(type.ordinal(), start, length);
+    }
+
+    void addError(int start, int end) {
+        errors.add(0, start, end - start);
+    }
+
+    // appends the tokens and errors of another buffer over the same source
+    void addAll(TokenBuffer other) {
+        addRange(other, 0, other.size(), 0);
+        addErrors(other, 0, other.getErrorCount(), 0);
+    }
+
+    // appends tokens [from, to) of another buffer, moved by shift characters
+    void addRange(TokenBuffer other, int from, int to, int shift) {
+        tokens.addRange(other.tokens, from, to, shift);
+    }
+
+    void addErrors(TokenBuffer other, int from, int to, int shift) {
+        errors.addRange(other.errors, from, to, shift);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[tokens.type(index)];
+    }
+
+    public int start(int index) {
+        return tokens.start(index);
+    }
+
+    public int length(int index) {
+        return tokens.length(index);
+    }
+
+    public int end(int index) {
+        return tokens.start(index) + tokens.length(index);
+    }
+
+    // where the match of a token began and ended, counting the quotes around a path
+    public int matchStart(int index) {
+        return isPath(index) ? start(index) - 1 : start(index);
+    }
+
+    public int matchEnd(int index) {
+        return isPath(index) ? end(index) + 1 : end(index);
+    }
+
+    private boolean isPath(int index) {
+        TokenType type = type(index);
+        return type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH;
+    }
+
+    // the number of leading tokens whose match ends before offset; match ends increase with the index
+    int countEndingBefore(int offset) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (matchEnd(middle) < offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    // a view of the token's text in the source; nothing is copied until it is turned into a String
+    public CharSequence text(int index) {
+        return CharBuffer.wrap(source, start(index), end(index));
+    }
+
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    public int errorEnd(int index) {
+        return errors.start(index) + errors.length(index);
+    }
+
+    public int errorStart(int index) {
+        return errors.start(index);
+    }
+
+    public String errorText(int index) {
+        return source.subSequence(errorStart(index), errorEnd(index)).toString();
+    }
+
+    // the number of leading errors that end at or before offset; like tokens, errors are in source order
+    int countErrorsEndingBy(int offset) {
+        int low = 0;
+        int high = getErrorCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (errorEnd(middle) <= offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    public boolean textEquals(int index, String text) {
+        if (length(index) != text.length()) return false;
+        int start = start(index);
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(start + i) != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // the same tokens as Lexer.tokenize(), with paths expanded back into QUOTE, path, QUOTE
+    public List<Token> toTokens() {
+        List<Token> tokens = new ArrayList<>(size() + size() / 4);
+        for (int i = 0; i < size(); i++) {
+            TokenType type = type(i);
+            String value = source.subSequence(start(i), end(i)).toString();
+            if (type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH) {
+                tokens.add(new Token(TokenType.QUOTE, "\""));
+                tokens.add(new Token(type, value));
+                tokens.add(new Token(TokenType.QUOTE, "\""));
+            } else {
+                tokens.add(new Token(type, value));
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,134 @@
+package laboratory3;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.regex.Matcher;
+
+// Tokens of a Reader, produced on demand from a sliding window of the input. A match that runs into the end
+// of the window (hitEnd) could change with more input, so the window slides forward and the match is retried.
+// The window grows past its initial size only when a match needs more than it holds. That happens for a
+// token longer than the window, and also at every quote: the folder-path lookahead reads to the end of the
+// line, because whether it holds depends on how the line ends. Memory is therefore bounded by the longest
+// line that contains a quote, not by the longest token. Those tokens must be the ones tokenize() gives, so
+// the lookahead cannot be settled early.
+public class TokenStream implements Iterator<Token> {
+    static final int DEFAULT_BUFFER_CHARS = 1 << 16;
+
+    private final Reader reader;
+    private final Matcher matcher;
+    private final Deque<Token> pending = new ArrayDeque<>();
+    // unmatched input since the last token, reported as one piece unless it outgrows the buffer
+    private final StringBuilder unmatched = new StringBuilder();
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private boolean finished;
+
+    public TokenStream(Reader reader) {
+        this(reader, DEFAULT_BUFFER_CHARS);
+    }
+
+    TokenStream(Reader reader, int bufferChars) {
+        this.reader = reader;
+        this.buffer = new char[Math.max(16, bufferChars)];
+        // \b at the start of the window looks at the previous character, which is kept when the window slides
+        this.matcher = Lexer.TOKEN_PATTERN.matcher("").useTransparentBounds(true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending.isEmpty() && !finished) advance();
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return pending.poll();
+    }
+
+    private void advance() {
+        while (pending.isEmpty() && !finished) {
+            matcher.region(position, limit);
+            // $ may only match at the real end of the input, not at the end of the window
+            matcher.useAnchoringBounds(endOfInput);
+            boolean found = matcher.find();
+            if (matcher.hitEnd() && !endOfInput) {
+                slide(found);
+                continue;
+            }
+            if (!found) {
+                skipUnmatched(position, limit);
+                reportUnmatched();
+                position = limit;
+                pending.add(new Token(TokenType.EOF, ""));
+                finished = true;
+                continue;
+            }
+
+            skipUnmatched(position, matcher.start());
+            reportUnmatched();
+            TokenType type = Lexer.matchedType(matcher);
+            if (type == TokenType.FILE_PATH || type == TokenType.FOLDER_PATH) {
+                pending.add(new Token(TokenType.QUOTE, "\""));
+                pending.add(new Token(type, new String(buffer, matcher.start() + 1, matcher.end() - matcher.start() - 2)));
+                pending.add(new Token(TokenType.QUOTE, "\""));
+            } else {
+                pending.add(new Token(type, new String(buffer, matcher.start(), matcher.end() - matcher.start())));
+            }
+            position = matcher.end();
+        }
+    }
+
+    // Moves the unread input (plus one character of context) to the front of the buffer and reads more.
+    // When nothing can be discarded, unmatched input is reported up to the first position where a token
+    // could still start, and only a match longer than the whole buffer makes the buffer grow.
+    private void slide(boolean matching) {
+        int keep = Math.max(0, position - 1);
+        if (keep == 0 && limit == buffer.length) {
+            if (!matching) {
+                int from = position;
+                while (position < limit && !couldStartToken(position)) position++;
+                skipUnmatched(from, position);
+                keep = Math.max(0, position - 1);
+            }
+            if (keep == 0) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            position -= keep;
+            limit -= keep;
+        }
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        matcher.reset(CharBuffer.wrap(buffer, 0, limit));
+    }
+
+    private boolean couldStartToken(int at) {
+        matcher.region(at, limit);
+        return matcher.lookingAt() || matcher.hitEnd();
+    }
+
+    private void skipUnmatched(int from, int to) {
+        unmatched.append(buffer, from, to - from);
+        if (unmatched.length() >= buffer.length) reportUnmatched();
+    }
+
+    private void reportUnmatched() {
+        String unmatchedInput = unmatched.toString().trim();
+        if (!unmatchedInput.isEmpty()) Lexer.reportError(unmatchedInput);
+        unmatched.setLength(0);
+    }
+}